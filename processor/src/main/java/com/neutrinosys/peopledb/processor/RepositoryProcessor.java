@@ -0,0 +1,272 @@
+package com.neutrinosys.peopledb.processor;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.annotation.processing.SupportedOptions;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Generates, at compile time, what CrudRepository would otherwise find through reflection:
+ * <ul>
+ *     <li>{@code <Repository>_Sql}: the @SQL/@MultiSQL strings of a repository, keyed by operation and dialect.</li>
+ *     <li>{@code <Entity>_IdAccessor}: reads and writes the @Id field through its getter and setter.
+ *     Entities whose @Id has no setter get no accessor and keep using reflection.</li>
+ *     <li>{@code <Entity>_VersionAccessor}: the same for the @Version field, which must be a long.</li>
+ * </ul>
+ * Annotations are matched by name so this module does not depend on the main source set, and are
+ * claimed once processed. Pass {@code -Apeopledb.verbose=true} to get a note for each entity left on reflection.
+ */
+@SupportedAnnotationTypes({RepositoryProcessor.SQL, RepositoryProcessor.MULTI_SQL, RepositoryProcessor.ID, RepositoryProcessor.VERSION})
+@SupportedOptions(RepositoryProcessor.VERBOSE_OPTION)
+public class RepositoryProcessor extends AbstractProcessor {
+    static final String SQL = "com.neutrinosys.peopledb.annotation.SQL";
+    static final String MULTI_SQL = "com.neutrinosys.peopledb.annotation.MultiSQL";
+    static final String ID = "com.neutrinosys.peopledb.annotation.Id";
+    static final String VERSION = "com.neutrinosys.peopledb.annotation.Version";
+    static final String VERBOSE_OPTION = "peopledb.verbose";
+    private static final String SUPPORT_PACKAGE = "com.neutrinosys.peopledb.repository";
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        Map<TypeElement, List<SqlEntry>> sqlByRepository = new LinkedHashMap<>();
+        for (TypeElement annotation : annotations) {
+            String annotationName = annotation.getQualifiedName().toString();
+            for (Element element : roundEnv.getElementsAnnotatedWith(annotation)) {
+                if (annotationName.equals(ID) && element.getKind() == ElementKind.FIELD) {
+                    writeIdAccessor((VariableElement) element);
+                } else if (annotationName.equals(VERSION) && element.getKind() == ElementKind.FIELD) {
+                    writeVersionAccessor((VariableElement) element);
+                } else if ((annotationName.equals(SQL) || annotationName.equals(MULTI_SQL)) && element.getKind() == ElementKind.METHOD) {
+                    TypeElement repository = (TypeElement) element.getEnclosingElement();
+                    collectSql(element, annotationName, sqlByRepository.computeIfAbsent(repository, k -> new ArrayList<>()));
+                }
+            }
+        }
+        sqlByRepository.forEach(this::writeSqlTable);
+        return true;
+    }
+
+    private void collectSql(Element method, String annotationName, List<SqlEntry> entries) {
+        for (AnnotationMirror mirror : method.getAnnotationMirrors()) {
+            String mirrorName = ((TypeElement) mirror.getAnnotationType().asElement()).getQualifiedName().toString();
+            if (!mirrorName.equals(annotationName)) continue;
+            if (annotationName.equals(SQL)) {
+                entries.add(toSqlEntry(mirror));
+            } else {
+                @SuppressWarnings("unchecked")
+                List<? extends AnnotationValue> sqls = (List<? extends AnnotationValue>) getValue(mirror, "value").getValue();
+                sqls.forEach(sql -> entries.add(toSqlEntry((AnnotationMirror) sql.getValue())));
+            }
+        }
+    }
+
+    private SqlEntry toSqlEntry(AnnotationMirror sql) {
+        String value = (String) getValue(sql, "value").getValue();
+        String operationType = ((VariableElement) getValue(sql, "operationType").getValue()).getSimpleName().toString();
+        List<String> dialects = new ArrayList<>();
+        AnnotationValue dialectsValue = getValue(sql, "dialects");
+        if (dialectsValue != null) {
+            @SuppressWarnings("unchecked")
+            List<? extends AnnotationValue> values = (List<? extends AnnotationValue>) dialectsValue.getValue();
+            values.forEach(v -> dialects.add(((VariableElement) v.getValue()).getSimpleName().toString()));
+        }
+        return new SqlEntry(operationType, dialects, value);
+    }
+
+    private AnnotationValue getValue(AnnotationMirror mirror, String name) {
+        return mirror.getElementValues().entrySet().stream()
+                .filter(e -> e.getKey().getSimpleName().contentEquals(name))
+                .map(Map.Entry::getValue)
+                .findFirst().orElse(null);
+    }
+
+    private void writeSqlTable(TypeElement repository, List<SqlEntry> entries) {
+        String packageName = getPackageName(repository);
+        String className = repository.getSimpleName() + "_Sql";
+        Map<String, List<SqlEntry>> entriesByOperation = new LinkedHashMap<>();
+        entries.forEach(e -> entriesByOperation.computeIfAbsent(e.operationType(), k -> new ArrayList<>()).add(e));
+
+        StringBuilder src = new StringBuilder();
+        src.append("package ").append(packageName).append(";\n\n");
+        if (!packageName.equals(SUPPORT_PACKAGE)) {
+            src.append("import ").append(SUPPORT_PACKAGE).append(".SqlTable;\n");
+        }
+        src.append("import com.neutrinosys.peopledb.dialect.Dialect;\n");
+        src.append("import com.neutrinosys.peopledb.model.CrudOperation;\n\n");
+        src.append("public final class ").append(className).append(" implements SqlTable {\n");
+        src.append("    @Override\n");
+        src.append("    public String getSql(CrudOperation operationType, Dialect dialect) {\n");
+        src.append("        switch (operationType) {\n");
+        entriesByOperation.forEach((operationType, operationEntries) -> {
+            src.append("            case ").append(operationType).append(":\n");
+            Optional<SqlEntry> portable = Optional.empty();
+            for (SqlEntry entry : operationEntries) {
+                if (entry.dialects().isEmpty()) {
+                    if (portable.isEmpty()) portable = Optional.of(entry);
+                    continue;
+                }
+                for (String dialect : entry.dialects()) {
+                    src.append("                if (dialect == Dialect.").append(dialect).append(") return ")
+                            .append(toJavaString(entry.sql())).append(";\n");
+                }
+            }
+            src.append("                return ").append(portable.map(e -> toJavaString(e.sql())).orElse("null")).append(";\n");
+        });
+        src.append("            default:\n");
+        src.append("                return null;\n");
+        src.append("        }\n");
+        src.append("    }\n");
+        src.append("}\n");
+        writeSource(packageName + "." + className, src.toString(), repository);
+    }
+
+    private void writeIdAccessor(VariableElement idField) {
+        TypeElement entity = (TypeElement) idField.getEnclosingElement();
+        String fieldName = idField.getSimpleName().toString();
+        String capitalized = Character.toUpperCase(fieldName.charAt(0)) + fieldName.substring(1);
+        Optional<ExecutableElement> getter = findAccessor(entity, List.of("get" + capitalized, fieldName), 0);
+        Optional<ExecutableElement> setter = findAccessor(entity, List.of("set" + capitalized), 1);
+        if (getter.isEmpty() || setter.isEmpty()) {
+            if (Boolean.parseBoolean(processingEnv.getOptions().get(VERBOSE_OPTION))) {
+                processingEnv.getMessager().printMessage(Diagnostic.Kind.NOTE,
+                        "No getter/setter pair for @Id; " + entity.getSimpleName() + " will use reflection", idField);
+            }
+            return;
+        }
+
+        String packageName = getPackageName(entity);
+        String entityName = entity.getSimpleName().toString();
+        String className = entityName + "_IdAccessor";
+        String src = """
+                package %1$s;
+
+                import com.neutrinosys.peopledb.repository.IdAccessor;
+
+                public final class %2$s implements IdAccessor<%3$s> {
+                    @Override
+                    public Long getId(%3$s entity) {
+                        return entity.%4$s();
+                    }
+
+                    @Override
+                    public void setId(%3$s entity, Long id) {
+                        entity.%5$s(id);
+                    }
+                }
+                """.formatted(packageName, className, entityName,
+                getter.get().getSimpleName(), setter.get().getSimpleName());
+        writeSource(packageName + "." + className, src, entity);
+    }
+
+    private void writeVersionAccessor(VariableElement versionField) {
+        TypeElement entity = (TypeElement) versionField.getEnclosingElement();
+        if (versionField.asType().getKind() != TypeKind.LONG) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "@Version field must be a long", versionField);
+            return;
+        }
+        String fieldName = versionField.getSimpleName().toString();
+        String capitalized = Character.toUpperCase(fieldName.charAt(0)) + fieldName.substring(1);
+        Optional<ExecutableElement> getter = findAccessor(entity, List.of("get" + capitalized, fieldName), 0);
+        Optional<ExecutableElement> setter = findAccessor(entity, List.of("set" + capitalized), 1);
+        if (getter.isEmpty() || setter.isEmpty()) {
+            if (Boolean.parseBoolean(processingEnv.getOptions().get(VERBOSE_OPTION))) {
+                processingEnv.getMessager().printMessage(Diagnostic.Kind.NOTE,
+                        "No getter/setter pair for @Version; " + entity.getSimpleName() + " will use reflection", versionField);
+            }
+            return;
+        }
+
+        String packageName = getPackageName(entity);
+        String entityName = entity.getSimpleName().toString();
+        String className = entityName + "_VersionAccessor";
+        String src = """
+                package %1$s;
+
+                import com.neutrinosys.peopledb.repository.VersionAccessor;
+
+                public final class %2$s implements VersionAccessor<%3$s> {
+                    @Override
+                    public boolean isVersioned() {
+                        return true;
+                    }
+
+                    @Override
+                    public long getVersion(%3$s entity) {
+                        return entity.%4$s();
+                    }
+
+                    @Override
+                    public void setVersion(%3$s entity, long version) {
+                        entity.%5$s(version);
+                    }
+                }
+                """.formatted(packageName, className, entityName,
+                getter.get().getSimpleName(), setter.get().getSimpleName());
+        writeSource(packageName + "." + className, src, entity);
+    }
+
+    private Optional<ExecutableElement> findAccessor(TypeElement entity, List<String> names, int parameterCount) {
+        return ElementFilter.methodsIn(entity.getEnclosedElements()).stream()
+                .filter(m -> names.contains(m.getSimpleName().toString()))
+                .filter(m -> m.getParameters().size() == parameterCount)
+                .filter(m -> !m.getModifiers().contains(Modifier.PRIVATE) && !m.getModifiers().contains(Modifier.STATIC))
+                .findFirst();
+    }
+
+    private String getPackageName(TypeElement type) {
+        return processingEnv.getElementUtils().getPackageOf(type).getQualifiedName().toString();
+    }
+
+    private void writeSource(String qualifiedName, String src, Element originatingElement) {
+        try (Writer writer = processingEnv.getFiler().createSourceFile(qualifiedName, originatingElement).openWriter()) {
+            writer.write(src);
+        } catch (IOException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                    "Unable to write " + qualifiedName + ": " + e.getMessage(), originatingElement);
+        }
+    }
+
+    private static String toJavaString(String value) {
+        StringBuilder escaped = new StringBuilder("\"");
+        for (char c : value.toCharArray()) {
+            switch (c) {
+                case '"' -> escaped.append("\\\"");
+                case '\\' -> escaped.append("\\\\");
+                case '\n' -> escaped.append("\\n");
+                case '\r' -> escaped.append("\\r");
+                case '\t' -> escaped.append("\\t");
+                default -> escaped.append(c);
+            }
+        }
+        return escaped.append('"').toString();
+    }
+
+    private record SqlEntry(String operationType, List<String> dialects, String sql) {
+    }
+}
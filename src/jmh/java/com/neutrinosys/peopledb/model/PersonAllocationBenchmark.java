@@ -0,0 +1,50 @@
+package com.neutrinosys.peopledb.model;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Run with ./gradlew jmh; the gc profiler reports gc.alloc.rate.norm (bytes per operation).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PersonAllocationBenchmark {
+    private final Timestamp dobTimestamp = Timestamp.valueOf(LocalDateTime.of(1980, 11, 15, 15, 15));
+    private final BigDecimal salary = new BigDecimal("73000.28");
+    private final Person left = new Person(1L, "John", "Smith", ZonedDateTime.of(1980, 11, 15, 15, 15, 0, 0, ZoneOffset.ofHours(-6)));
+    private final Person right = new Person(1L, "John", "Smith", ZonedDateTime.of(1980, 11, 15, 21, 15, 0, 0, Person.UTC));
+
+    @Benchmark
+    public Person extractRow() {
+        LocalDateTime dob = dobTimestamp.toLocalDateTime();
+        return new Person(1L, "John", "Smith", dob.toEpochSecond(ZoneOffset.UTC), dob.getNano(), salary);
+    }
+
+    @Benchmark
+    public boolean equalsAcrossZones() {
+        return left.equals(right);
+    }
+
+    @Benchmark
+    public int hashCodeOfPerson() {
+        return left.hashCode();
+    }
+}
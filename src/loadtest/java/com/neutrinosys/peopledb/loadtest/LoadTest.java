@@ -0,0 +1,127 @@
+package com.neutrinosys.peopledb.loadtest;
+
+import com.neutrinosys.peopledb.dialect.Schema;
+import com.neutrinosys.peopledb.model.Person;
+import com.neutrinosys.peopledb.repository.PeopleRepository;
+import org.HdrHistogram.Histogram;
+
+import java.io.PrintStream;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Drives PeopleRepository from several threads with a configurable operation mix and reports
+ * per-operation throughput and latency percentiles. See {@link LoadTestConfig} for the options, e.g.
+ * <pre>
+ * ./gradlew loadTest -PloadTestArgs="--threads 16 --duration 60 --mix findById=80,update=20"
+ * </pre>
+ */
+public class LoadTest {
+    private final LoadTestConfig config;
+
+    public LoadTest(LoadTestConfig config) {
+        this.config = config;
+    }
+
+    public static void main(String[] args) throws Exception {
+        new LoadTest(LoadTestConfig.parse(args)).run(System.out);
+    }
+
+    public void run(PrintStream out) throws SQLException, InterruptedException {
+        long[] seededIds;
+        try (Connection connection = connect()) {
+            if (config.createSchema()) {
+                Schema.create(connection);
+                connection.commit();
+            }
+            seededIds = seed(connection);
+        }
+        out.printf("Seeded %,d people, running %d threads for %ds (+%ds warm-up)%n",
+                seededIds.length, config.threads(), config.duration().toSeconds(), config.warmup().toSeconds());
+
+        long start = System.nanoTime();
+        long measureFrom = start + config.warmup().toNanos();
+        long deadline = measureFrom + config.duration().toNanos();
+        List<Connection> connections = new ArrayList<>();
+        List<Worker> workers = new ArrayList<>();
+        List<Thread> threads = new ArrayList<>();
+        try {
+            for (int i = 0; i < config.threads(); i++) {
+                Connection connection = connect();
+                connections.add(connection);
+                Worker worker = new Worker(connection, seededIds, config.mix(), measureFrom, deadline, config.randomSeed() + i + 1);
+                workers.add(worker);
+                Thread thread = new Thread(worker, "loadtest-" + i);
+                threads.add(thread);
+                thread.start();
+            }
+            for (Thread thread : threads) {
+                thread.join();
+            }
+        } finally {
+            for (Connection connection : connections) {
+                connection.close();
+            }
+        }
+        report(workers, out);
+    }
+
+    private Connection connect() throws SQLException {
+        Connection connection = DriverManager.getConnection(config.url(), config.user(), config.password());
+        connection.setAutoCommit(false);
+        return connection;
+    }
+
+    private long[] seed(Connection connection) throws SQLException {
+        PeopleRepository repo = new PeopleRepository(connection);
+        SyntheticPeople people = new SyntheticPeople(config.randomSeed());
+        List<Long> ids = new ArrayList<>(config.seedPeople());
+        int saved = 0;
+        while (ids.size() < config.seedPeople()) {
+            Person person = repo.save(people.newFamily());
+            ids.add(person.getId());
+            for (Person child : person.getChildren()) {
+                ids.add(child.getId());
+            }
+            if (++saved % 500 == 0) {
+                connection.commit();
+            }
+        }
+        connection.commit();
+        return ids.stream().mapToLong(Long::longValue).toArray();
+    }
+
+    private void report(List<Worker> workers, PrintStream out) {
+        Map<Operation, Histogram> merged = new EnumMap<>(Operation.class);
+        long lockConflicts = 0, retries = 0, errors = 0;
+        for (Worker worker : workers) {
+            worker.getHistograms().forEach((operation, histogram) ->
+                    merged.computeIfAbsent(operation, op -> new Histogram(3)).add(histogram));
+            lockConflicts += worker.getLockConflicts();
+            retries += worker.getRetries();
+            errors += worker.getErrors();
+        }
+        double seconds = config.duration().toNanos() / (double) TimeUnit.SECONDS.toNanos(1);
+        Histogram total = new Histogram(3);
+        out.printf("%-10s %10s %10s %9s %9s %9s %9s %9s%n", "operation", "count", "ops/s", "p50 us", "p90 us", "p99 us", "p99.9 us", "max us");
+        for (Map.Entry<Operation, Histogram> entry : merged.entrySet()) {
+            printRow(out, entry.getKey().name(), entry.getValue(), seconds);
+            total.add(entry.getValue());
+        }
+        printRow(out, "TOTAL", total, seconds);
+        out.printf("lock conflicts: %,d, retries: %,d, failed transactions: %,d%n", lockConflicts, retries, errors);
+    }
+
+    private static void printRow(PrintStream out, String name, Histogram histogram, double seconds) {
+        out.printf("%-10s %,10d %,10.1f %,9d %,9d %,9d %,9d %,9d%n", name, histogram.getTotalCount(),
+                histogram.getTotalCount() / seconds,
+                histogram.getValueAtPercentile(50), histogram.getValueAtPercentile(90),
+                histogram.getValueAtPercentile(99), histogram.getValueAtPercentile(99.9), histogram.getMaxValue());
+    }
+}
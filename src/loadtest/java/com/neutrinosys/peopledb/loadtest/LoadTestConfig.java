@@ -0,0 +1,63 @@
+package com.neutrinosys.peopledb.loadtest;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Command line options, each given as --name value:
+ * <pre>
+ * --url           JDBC URL (default jdbc:h2:mem:loadtest;DB_CLOSE_DELAY=-1)
+ * --user          database user (default empty)
+ * --password      database password (default empty)
+ * --threads       number of worker threads, each with its own connection (default 8)
+ * --duration      measured run time in seconds (default 30)
+ * --warmup        unmeasured run time in seconds before that (default 5)
+ * --seed          number of people to create before the run (default 1000)
+ * --mix           operation weights (default save=10,findById=50,findAll=5,update=20,delete=5,count=10)
+ * --create-schema create PEOPLE and ADDRESSES if missing (default true for in-memory H2 URLs)
+ * --random-seed   seed for the synthetic data (default 42)
+ * </pre>
+ */
+public record LoadTestConfig(String url, String user, String password, int threads, Duration duration, Duration warmup,
+                             int seedPeople, Map<Operation, Integer> mix, boolean createSchema, long randomSeed) {
+
+    public static LoadTestConfig parse(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            if (!args[i].startsWith("--")) throw new IllegalArgumentException("Expected an option but got " + args[i]);
+            options.put(args[i].substring(2), args[i + 1]);
+        }
+        String url = options.getOrDefault("url", "jdbc:h2:mem:loadtest;DB_CLOSE_DELAY=-1");
+        return new LoadTestConfig(
+                url,
+                options.getOrDefault("user", ""),
+                options.getOrDefault("password", ""),
+                Integer.parseInt(options.getOrDefault("threads", "8")),
+                Duration.ofSeconds(Long.parseLong(options.getOrDefault("duration", "30"))),
+                Duration.ofSeconds(Long.parseLong(options.getOrDefault("warmup", "5"))),
+                Integer.parseInt(options.getOrDefault("seed", "1000")),
+                parseMix(options.getOrDefault("mix", "save=10,findById=50,findAll=5,update=20,delete=5,count=10")),
+                Boolean.parseBoolean(options.getOrDefault("create-schema", String.valueOf(url.startsWith("jdbc:h2:mem:")))),
+                Long.parseLong(options.getOrDefault("random-seed", "42")));
+    }
+
+    private static Map<Operation, Integer> parseMix(String mix) {
+        Map<Operation, Integer> weights = new EnumMap<>(Operation.class);
+        for (String entry : mix.split(",")) {
+            String[] nameAndWeight = entry.split("=");
+            Operation operation = switch (nameAndWeight[0].trim()) {
+                case "save" -> Operation.SAVE;
+                case "findById" -> Operation.FIND_BY_ID;
+                case "findAll" -> Operation.FIND_ALL;
+                case "update" -> Operation.UPDATE;
+                case "delete" -> Operation.DELETE;
+                case "count" -> Operation.COUNT;
+                default -> throw new IllegalArgumentException("Unknown operation in mix: " + nameAndWeight[0]);
+            };
+            weights.put(operation, Integer.parseInt(nameAndWeight[1].trim()));
+        }
+        return weights;
+    }
+}
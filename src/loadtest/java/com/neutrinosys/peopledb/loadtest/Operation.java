@@ -0,0 +1,10 @@
+package com.neutrinosys.peopledb.loadtest;
+
+public enum Operation {
+    SAVE,
+    FIND_BY_ID,
+    FIND_ALL,
+    UPDATE,
+    DELETE,
+    COUNT
+}
@@ -0,0 +1,63 @@
+package com.neutrinosys.peopledb.loadtest;
+
+import com.neutrinosys.peopledb.model.Address;
+import com.neutrinosys.peopledb.model.Person;
+import com.neutrinosys.peopledb.model.Region;
+
+import java.math.BigDecimal;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.Random;
+
+class SyntheticPeople {
+    private static final String[] FIRST_NAMES = {"John", "Jane", "Sarah", "Bobby", "Jenny", "Terry", "Maria", "Wei", "Amir", "Olga"};
+    private static final String[] LAST_NAMES = {"Smith", "Jones", "Garcia", "Chen", "Khan", "Novak", "Okafor", "Silva", "Kim", "Muller"};
+    private static final String[][] CITIES = {{"Wala Wala", "WA"}, {"Austin", "TX"}, {"Boston", "MA"}, {"Denver", "CO"}, {"Atlanta", "GA"}};
+    private static final Region[] REGIONS = Region.values();
+
+    private final Random random;
+
+    SyntheticPeople(long seed) {
+        this.random = new Random(seed);
+    }
+
+    Person newPerson() {
+        Person person = new Person(pick(FIRST_NAMES), pick(LAST_NAMES), randomDob(1950, 2000));
+        person.setSalary(BigDecimal.valueOf(20_000_00L + random.nextInt(180_000_00), 2));
+        person.setEmail(person.getFirstName().toLowerCase() + "." + person.getLastName().toLowerCase() + "." + random.nextInt(1_000_000) + "@example.com");
+        return person;
+    }
+
+    /**
+     * A person with a home address half of the time and up to two children a fifth of the time.
+     */
+    Person newFamily() {
+        Person person = newPerson();
+        if (random.nextBoolean()) {
+            person.setHomeAddress(newAddress());
+        }
+        if (random.nextInt(5) == 0) {
+            int children = 1 + random.nextInt(2);
+            for (int i = 0; i < children; i++) {
+                person.addChild(new Person(pick(FIRST_NAMES), person.getLastName(), randomDob(2001, 2020)));
+            }
+        }
+        return person;
+    }
+
+    Address newAddress() {
+        String[] city = CITIES[random.nextInt(CITIES.length)];
+        return new Address(null, (100 + random.nextInt(9900)) + " Main St.", null, city[0], city[1],
+                String.valueOf(10000 + random.nextInt(89999)), "United States", city[0] + " County",
+                REGIONS[random.nextInt(REGIONS.length)]);
+    }
+
+    private ZonedDateTime randomDob(int fromYear, int toYear) {
+        return ZonedDateTime.of(fromYear + random.nextInt(toYear - fromYear), 1 + random.nextInt(12), 1 + random.nextInt(28),
+                random.nextInt(24), random.nextInt(60), 0, 0, ZoneOffset.UTC);
+    }
+
+    private String pick(String[] values) {
+        return values[random.nextInt(values.length)];
+    }
+}
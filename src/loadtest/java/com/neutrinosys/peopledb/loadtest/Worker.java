@@ -0,0 +1,164 @@
+package com.neutrinosys.peopledb.loadtest;
+
+import com.neutrinosys.peopledb.exception.DataException;
+import com.neutrinosys.peopledb.exception.VersionConflictException;
+import com.neutrinosys.peopledb.model.Person;
+import com.neutrinosys.peopledb.repository.PeopleRepository;
+import org.HdrHistogram.Histogram;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs randomly picked operations, each in its own transaction, on one connection until the deadline.
+ * Latency covers the operation and its commit. A transaction that fails on a lock conflict is rolled
+ * back and retried up to MAX_RETRIES times.
+ */
+class Worker implements Runnable {
+    private static final int MAX_RETRIES = 3;
+
+    private final Connection connection;
+    private final PeopleRepository repo;
+    private final long[] seededIds;
+    private final Operation[] operations;
+    private final int[] cumulativeWeights;
+    private final long measureFromNanos;
+    private final long deadlineNanos;
+    private final Random random;
+    private final SyntheticPeople people;
+    private final List<Person> created = new ArrayList<>();
+    private final Map<Operation, Histogram> histograms = new EnumMap<>(Operation.class);
+    private long lockConflicts;
+    private long retries;
+    private long errors;
+
+    Worker(Connection connection, long[] seededIds, Map<Operation, Integer> mix, long measureFromNanos, long deadlineNanos, long seed) {
+        this.connection = connection;
+        this.repo = new PeopleRepository(connection);
+        this.seededIds = seededIds;
+        this.measureFromNanos = measureFromNanos;
+        this.deadlineNanos = deadlineNanos;
+        this.random = new Random(seed);
+        this.people = new SyntheticPeople(seed);
+        this.operations = mix.keySet().toArray(Operation[]::new);
+        this.cumulativeWeights = new int[operations.length];
+        int total = 0;
+        for (int i = 0; i < operations.length; i++) {
+            total += mix.get(operations[i]);
+            cumulativeWeights[i] = total;
+            histograms.put(operations[i], new Histogram(3));
+        }
+    }
+
+    @Override
+    public void run() {
+        long now;
+        while ((now = System.nanoTime()) < deadlineNanos) {
+            Operation operation = pickOperation();
+            boolean succeeded = executeWithRetries(operation);
+            long latencyNanos = System.nanoTime() - now;
+            if (succeeded && now >= measureFromNanos) {
+                histograms.get(operation).recordValue(TimeUnit.NANOSECONDS.toMicros(latencyNanos));
+            }
+        }
+    }
+
+    Map<Operation, Histogram> getHistograms() {
+        return histograms;
+    }
+
+    long getLockConflicts() {
+        return lockConflicts;
+    }
+
+    long getRetries() {
+        return retries;
+    }
+
+    long getErrors() {
+        return errors;
+    }
+
+    private boolean executeWithRetries(Operation operation) {
+        for (int attempt = 0; ; attempt++) {
+            try {
+                execute(operation);
+                connection.commit();
+                return true;
+            } catch (SQLException | DataException e) {
+                rollback();
+                boolean lockConflict = isLockConflict(e);
+                if (lockConflict) lockConflicts++;
+                if (lockConflict && attempt < MAX_RETRIES) {
+                    retries++;
+                    continue;
+                }
+                errors++;
+                return false;
+            }
+        }
+    }
+
+    private void execute(Operation operation) {
+        switch (operation) {
+            case SAVE -> created.add(repo.save(people.newPerson()));
+            case FIND_BY_ID -> repo.findById(randomSeededId());
+            case FIND_ALL -> repo.findAll();
+            case UPDATE -> repo.findById(randomSeededId()).ifPresent(person -> {
+                person.setSalary(people.newPerson().getSalary());
+                repo.update(person);
+            });
+            case DELETE -> {
+                if (created.isEmpty()) {
+                    created.add(repo.save(people.newPerson()));
+                } else {
+                    repo.delete(created.remove(created.size() - 1));
+                }
+            }
+            case COUNT -> repo.count();
+        }
+    }
+
+    private Operation pickOperation() {
+        int pick = random.nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+        for (int i = 0; i < cumulativeWeights.length; i++) {
+            if (pick < cumulativeWeights[i]) return operations[i];
+        }
+        return operations[operations.length - 1];
+    }
+
+    private long randomSeededId() {
+        return seededIds[random.nextInt(seededIds.length)];
+    }
+
+    private void rollback() {
+        try {
+            connection.rollback();
+        } catch (SQLException e) {
+            errors++;
+        }
+    }
+
+    /**
+     * Optimistic version conflicts count, as do the lock errors: H2 reports lock timeouts as HYT00 and
+     * deadlocks as 40001; Postgres uses 40001 (serialization), 40P01 (deadlock) and 55P03 (lock not available).
+     */
+    private static boolean isLockConflict(Throwable e) {
+        if (e instanceof VersionConflictException) return true;
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof SQLException sqlException) {
+                String sqlState = sqlException.getSQLState();
+                if ("HYT00".equals(sqlState) || "40001".equals(sqlState) || "40P01".equals(sqlState) || "55P03".equals(sqlState)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+}
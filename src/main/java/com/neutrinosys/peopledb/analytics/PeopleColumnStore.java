@@ -0,0 +1,297 @@
+package com.neutrinosys.peopledb.analytics;
+
+import com.neutrinosys.peopledb.exception.DataException;
+import com.neutrinosys.peopledb.model.Region;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.Arrays;
+
+/**
+ * Read-only, column-oriented copy of PEOPLE for analytics scans.
+ * Every row is held in primitive arrays indexed by row number and sorted by ID, so a full
+ * scan touches a few contiguous arrays instead of millions of Person objects.
+ * <ul>
+ *     <li>DOB is stored as UTC epoch seconds, or NULL_DOB when absent.</li>
+ *     <li>Salary is stored as a long number of cents (scale 2, HALF_EVEN), or NULL_SALARY when absent.</li>
+ *     <li>First and last names are dictionary encoded.</li>
+ *     <li>Home address region is stored as its Region ordinal, or -1 when absent.</li>
+ * </ul>
+ * The scan loops are plain counted loops over primitive arrays so the JIT can unroll and
+ * vectorize them. Like SQL aggregates, the scans skip absent DOBs and salaries: both sentinels are
+ * Long.MIN_VALUE, below any range bound a ZonedDateTime or BigDecimal can express.
+ * The store is not thread-safe while a refresh is running.
+ */
+public class PeopleColumnStore {
+    public static final String LOAD_SQL = """
+            SELECT P.ID, P.FIRST_NAME, P.LAST_NAME, P.DOB, P.SALARY, HOME.REGION
+            FROM PEOPLE AS P
+            LEFT OUTER JOIN ADDRESSES AS HOME ON P.HOME_ADDRESS = HOME.ID
+            ORDER BY P.ID
+            """;
+    public static final String LOAD_RANGE_SQL = """
+            SELECT P.ID, P.FIRST_NAME, P.LAST_NAME, P.DOB, P.SALARY, HOME.REGION
+            FROM PEOPLE AS P
+            LEFT OUTER JOIN ADDRESSES AS HOME ON P.HOME_ADDRESS = HOME.ID
+            WHERE P.ID BETWEEN ? AND ?
+            ORDER BY P.ID
+            """;
+    private static final int FETCH_SIZE = 10_000;
+    private static final byte NO_REGION = -1;
+    private static final long NULL_DOB = Long.MIN_VALUE;
+    private static final long NULL_SALARY = Long.MIN_VALUE;
+    private static final Region[] REGIONS = Region.values();
+
+    private final StringDictionary names = new StringDictionary();
+    private int size;
+    private long[] ids = new long[0];
+    private long[] dobEpochSeconds = new long[0];
+    private long[] salaryCents = new long[0];
+    private int[] firstNameCodes = new int[0];
+    private int[] lastNameCodes = new int[0];
+    private byte[] regionOrdinals = new byte[0];
+
+    public static PeopleColumnStore load(Connection connection) {
+        PeopleColumnStore store = new PeopleColumnStore();
+        try (PreparedStatement ps = connection.prepareStatement(LOAD_SQL, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            ps.setFetchSize(FETCH_SIZE);
+            try (ResultSet rs = ps.executeQuery()) {
+                store.readRows(rs);
+            }
+        } catch (SQLException e) {
+            throw new DataException("Unable to load people column store", e);
+        }
+        return store;
+    }
+
+    /**
+     * Re-reads every person whose ID is within [fromId, toId], replacing the rows currently held
+     * for that range. Rows deleted from the database since the last load disappear from the store.
+     * @throws IllegalArgumentException when fromId is greater than toId.
+     */
+    public void refresh(Connection connection, long fromId, long toId) {
+        if (fromId > toId) {
+            throw new IllegalArgumentException("Invalid ID range [" + fromId + ", " + toId + "]");
+        }
+        int start = lowerBound(fromId);
+        int end = toId == Long.MAX_VALUE ? size : lowerBound(toId + 1);
+
+        PeopleColumnStore range = new PeopleColumnStore();
+        try (PreparedStatement ps = connection.prepareStatement(LOAD_RANGE_SQL, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            ps.setFetchSize(FETCH_SIZE);
+            ps.setLong(1, fromId);
+            ps.setLong(2, toId);
+            try (ResultSet rs = ps.executeQuery()) {
+                range.readRows(rs);
+            }
+        } catch (SQLException e) {
+            throw new DataException("Unable to refresh people column store", e);
+        }
+        splice(start, end, range);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public long countBornBetween(ZonedDateTime from, ZonedDateTime to) {
+        long fromSeconds = from.toEpochSecond();
+        long toSeconds = to.toEpochSecond();
+        long[] dobs = dobEpochSeconds;
+        long count = 0;
+        for (int i = 0; i < size; i++) {
+            long dob = dobs[i];
+            count += (dob >= fromSeconds && dob < toSeconds) ? 1 : 0;
+        }
+        return count;
+    }
+
+    public long countByLastName(String lastName) {
+        int code = names.lookup(lastName);
+        if (code == StringDictionary.NULL_CODE) return 0;
+        int[] codes = lastNameCodes;
+        long count = 0;
+        for (int i = 0; i < size; i++) {
+            count += codes[i] == code ? 1 : 0;
+        }
+        return count;
+    }
+
+    /**
+     * @return The sum of the known salaries, or null when there are none, as with SQL SUM.
+     */
+    public BigDecimal sumSalary() {
+        long[] salaries = salaryCents;
+        long sum = 0;
+        long count = 0;
+        for (int i = 0; i < size; i++) {
+            long salary = salaries[i];
+            boolean known = salary != NULL_SALARY;
+            sum += known ? salary : 0;
+            count += known ? 1 : 0;
+        }
+        return count == 0 ? null : BigDecimal.valueOf(sum, 2);
+    }
+
+    /**
+     * @return The average of the known salaries, or null when there are none, as with SQL AVG.
+     */
+    public BigDecimal averageSalary() {
+        long[] salaries = salaryCents;
+        long sum = 0;
+        long count = 0;
+        for (int i = 0; i < size; i++) {
+            long salary = salaries[i];
+            boolean known = salary != NULL_SALARY;
+            sum += known ? salary : 0;
+            count += known ? 1 : 0;
+        }
+        if (count == 0) return null;
+        return BigDecimal.valueOf(sum, 2).divide(BigDecimal.valueOf(count), 2, RoundingMode.HALF_EVEN);
+    }
+
+    /**
+     * @return Row numbers whose salary is within [low, high], in ID order.
+     */
+    public int[] selectSalaryBetween(BigDecimal low, BigDecimal high) {
+        long lowCents = toCents(low);
+        long highCents = toCents(high);
+        long[] salaries = salaryCents;
+        int[] selection = new int[size];
+        int selected = 0;
+        for (int i = 0; i < size; i++) {
+            long salary = salaries[i];
+            selection[selected] = i;
+            selected += (salary >= lowCents && salary <= highCents) ? 1 : 0;
+        }
+        return Arrays.copyOf(selection, selected);
+    }
+
+    public BigDecimal sumSalary(int[] rows) {
+        long[] salaries = salaryCents;
+        long sum = 0;
+        for (int row : rows) {
+            long salary = salaries[row];
+            sum += salary != NULL_SALARY ? salary : 0;
+        }
+        return BigDecimal.valueOf(sum, 2);
+    }
+
+    /**
+     * @return Person counts indexed by Region ordinal. People without a home address are not counted.
+     */
+    public long[] countByRegion() {
+        long[] counts = new long[REGIONS.length];
+        byte[] regions = regionOrdinals;
+        for (int i = 0; i < size; i++) {
+            byte region = regions[i];
+            if (region != NO_REGION) counts[region]++;
+        }
+        return counts;
+    }
+
+    public long getId(int row) {
+        return ids[row];
+    }
+
+    public String getFirstName(int row) {
+        return names.decode(firstNameCodes[row]);
+    }
+
+    public String getLastName(int row) {
+        return names.decode(lastNameCodes[row]);
+    }
+
+    public ZonedDateTime getDob(int row) {
+        long dob = dobEpochSeconds[row];
+        return dob == NULL_DOB ? null : ZonedDateTime.ofInstant(Instant.ofEpochSecond(dob), ZoneOffset.UTC);
+    }
+
+    public BigDecimal getSalary(int row) {
+        long salary = salaryCents[row];
+        return salary == NULL_SALARY ? null : BigDecimal.valueOf(salary, 2);
+    }
+
+    public Region getHomeRegion(int row) {
+        byte region = regionOrdinals[row];
+        return region == NO_REGION ? null : REGIONS[region];
+    }
+
+    private void readRows(ResultSet rs) throws SQLException {
+        while (rs.next()) {
+            ensureCapacity(size + 1);
+            ids[size] = rs.getLong(1);
+            firstNameCodes[size] = names.encode(rs.getString(2));
+            lastNameCodes[size] = names.encode(rs.getString(3));
+            Timestamp dob = rs.getTimestamp(4);
+            dobEpochSeconds[size] = dob == null ? NULL_DOB : dob.toLocalDateTime().toEpochSecond(ZoneOffset.UTC);
+            BigDecimal salary = rs.getBigDecimal(5);
+            salaryCents[size] = salary == null ? NULL_SALARY : toCents(salary);
+            String region = rs.getString(6);
+            regionOrdinals[size] = region == null ? NO_REGION : (byte) Region.valueOf(region.toUpperCase()).ordinal();
+            size++;
+        }
+    }
+
+    private void splice(int start, int end, PeopleColumnStore range) {
+        int newSize = size - (end - start) + range.size;
+        int tail = size - end;
+        int[] rangeFirstNames = new int[range.size];
+        int[] rangeLastNames = new int[range.size];
+        for (int i = 0; i < range.size; i++) {
+            rangeFirstNames[i] = names.encode(range.names.decode(range.firstNameCodes[i]));
+            rangeLastNames[i] = names.encode(range.names.decode(range.lastNameCodes[i]));
+        }
+        ids = splice(ids, start, end, tail, range.ids, range.size, new long[newSize]);
+        dobEpochSeconds = splice(dobEpochSeconds, start, end, tail, range.dobEpochSeconds, range.size, new long[newSize]);
+        salaryCents = splice(salaryCents, start, end, tail, range.salaryCents, range.size, new long[newSize]);
+        firstNameCodes = splice(firstNameCodes, start, end, tail, rangeFirstNames, range.size, new int[newSize]);
+        lastNameCodes = splice(lastNameCodes, start, end, tail, rangeLastNames, range.size, new int[newSize]);
+        regionOrdinals = splice(regionOrdinals, start, end, tail, range.regionOrdinals, range.size, new byte[newSize]);
+        size = newSize;
+    }
+
+    private static <A> A splice(A current, int start, int end, int tail, A replacement, int replacementSize, A target) {
+        System.arraycopy(current, 0, target, 0, start);
+        System.arraycopy(replacement, 0, target, start, replacementSize);
+        System.arraycopy(current, end, target, start + replacementSize, tail);
+        return target;
+    }
+
+    private int lowerBound(long id) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (ids[mid] < id) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= ids.length) return;
+        int newCapacity = Math.max(capacity, Math.max(16, ids.length + (ids.length >> 1)));
+        ids = Arrays.copyOf(ids, newCapacity);
+        dobEpochSeconds = Arrays.copyOf(dobEpochSeconds, newCapacity);
+        salaryCents = Arrays.copyOf(salaryCents, newCapacity);
+        firstNameCodes = Arrays.copyOf(firstNameCodes, newCapacity);
+        lastNameCodes = Arrays.copyOf(lastNameCodes, newCapacity);
+        regionOrdinals = Arrays.copyOf(regionOrdinals, newCapacity);
+    }
+
+    private static long toCents(BigDecimal amount) {
+        return amount.setScale(2, RoundingMode.HALF_EVEN).unscaledValue().longValueExact();
+    }
+}
@@ -1,5 +1,6 @@
 package com.neutrinosys.peopledb.annotation;
 
+import com.neutrinosys.peopledb.dialect.Dialect;
 import com.neutrinosys.peopledb.model.CrudOperation;
 
 import java.lang.annotation.Repeatable;
@@ -11,4 +12,10 @@ import java.lang.annotation.RetentionPolicy;
 public @interface SQL {
     String value();
     CrudOperation operationType();
+
+    /**
+     * The dialects this SQL is written for. Empty means it is portable and used whenever
+     * no dialect-specific variant for the same operation exists.
+     */
+    Dialect[] dialects() default {};
 }
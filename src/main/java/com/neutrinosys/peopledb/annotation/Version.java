@@ -0,0 +1,12 @@
+package com.neutrinosys.peopledb.annotation;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+
+/**
+ * Marks the long field holding an entity's optimistic-lock version. Repositories only update or
+ * delete the row while its VERSION still matches the field, and bump both on a successful update.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Version {
+}
@@ -0,0 +1,113 @@
+package com.neutrinosys.peopledb.cache;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Caches the results of scalar and aggregate reads for a staleness window, per scope, operation and
+ * arguments. Repositories use their own class as the scope, so one cache can be shared by every
+ * repository of an application, including one PeopleRepository per thread: they then share results,
+ * and a write through any of them invalidates the cache for all.
+ * <p>
+ * Loads are single-flight: callers asking for a result that is already being loaded wait for that load
+ * instead of starting their own query. A failed load is not cached. invalidateAll() drops every
+ * result, including loads still in flight, so a write made before the invalidation is never hidden by
+ * a result cached after it.
+ * <p>
+ * Only writes made through repositories attached to this cache invalidate it. Writes made on other
+ * connections or by other processes, through repositories with another cache or none, on shards with
+ * their own caches, or rolled back after being read, are served stale until the window runs out.
+ * <p>
+ * Results stay in the cache after their window runs out until the cache holds more than maxEntries
+ * results. Expired ones are then evicted, and if that is not enough every finished result is dropped.
+ */
+public class ResultCache {
+    public static final int DEFAULT_MAX_ENTRIES = 10_000;
+
+    private final Duration defaultWindow;
+    private final int maxEntries;
+    private final Map<String, Duration> windows = new ConcurrentHashMap<>();
+    private final Map<List<Object>, Entry<?>> entries = new ConcurrentHashMap<>();
+
+    public ResultCache(Duration defaultWindow) {
+        this(defaultWindow, DEFAULT_MAX_ENTRIES);
+    }
+
+    public ResultCache(Duration defaultWindow, int maxEntries) {
+        this.defaultWindow = defaultWindow;
+        this.maxEntries = maxEntries;
+    }
+
+    /**
+     * Overrides the staleness window of one operation, e.g. "count" or "getSalaryStats".
+     * A zero window still coalesces concurrent callers but never reuses a finished result.
+     */
+    public ResultCache withWindow(String operation, Duration window) {
+        windows.put(operation, window);
+        return this;
+    }
+
+    @SuppressWarnings("unchecked")
+    public <V> V get(Class<?> scope, String operation, List<?> args, Supplier<V> loader) {
+        List<Object> key = Arrays.asList(scope, operation, args);
+        long windowNanos = windowNanos(operation);
+        Entry<V> mine = new Entry<>();
+        Entry<V> current = (Entry<V>) entries.compute(key, (k, existing) ->
+                existing != null && existing.isUsable(System.nanoTime(), windowNanos) ? existing : mine);
+        if (current == mine) {
+            if (entries.size() > maxEntries) {
+                evict();
+            }
+            try {
+                mine.complete(loader.get());
+            } catch (Throwable e) {
+                entries.remove(key, mine);
+                mine.result.completeExceptionally(e);
+                throw e;
+            }
+        }
+        try {
+            return current.result.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof Error cause) throw cause;
+            throw e.getCause() instanceof RuntimeException cause ? cause : e;
+        }
+    }
+
+    public void invalidateAll() {
+        entries.clear();
+    }
+
+    private void evict() {
+        long now = System.nanoTime();
+        entries.entrySet().removeIf(e -> !e.getValue().isUsable(now, windowNanos((String) e.getKey().get(1))));
+        if (entries.size() > maxEntries) {
+            entries.values().removeIf(entry -> entry.result.isDone());
+        }
+    }
+
+    private long windowNanos(String operation) {
+        return windows.getOrDefault(operation, defaultWindow).toNanos();
+    }
+
+    private static class Entry<V> {
+        private final CompletableFuture<V> result = new CompletableFuture<>();
+        private volatile long loadedAt;
+
+        void complete(V value) {
+            loadedAt = System.nanoTime();
+            result.complete(value);
+        }
+
+        boolean isUsable(long now, long windowNanos) {
+            if (!result.isDone()) return true;
+            return !result.isCompletedExceptionally() && now - loadedAt < windowNanos;
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.neutrinosys.peopledb.cdc;
+
+import com.neutrinosys.peopledb.exception.DataException;
+import com.neutrinosys.peopledb.model.ChangeEvent;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Flow;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Receives a ChangeEvent for every save, update and delete made by the repositories it is attached to,
+ * including cascaded address and child saves.
+ * <p>
+ * The in-process feed is best effort. Events are published to subscribers as soon as the write
+ * statement runs, before the transaction commits, so a rolled back write is still published. Publishing
+ * never blocks the writer either: when a subscriber's buffer is full the event is dropped for that
+ * subscriber and counted in getDroppedCount(). Only the outbox is durable. Consumers that need every
+ * committed change, and nothing else, should turn it on and read it with an OutboxPoller: each event
+ * is then also inserted into CHANGE_OUTBOX on the repository's connection, inside the same transaction
+ * as the write.
+ * <pre>
+ * CREATE TABLE CHANGE_OUTBOX (
+ *     ID BIGINT AUTO_INCREMENT PRIMARY KEY,
+ *     ENTITY_TYPE VARCHAR(100) NOT NULL,
+ *     ENTITY_ID BIGINT NOT NULL,
+ *     CHANGE_TYPE VARCHAR(10) NOT NULL,
+ *     CREATED_AT TIMESTAMP NOT NULL
+ * )
+ * </pre>
+ */
+public class ChangeFeed implements Flow.Publisher<ChangeEvent>, AutoCloseable {
+    public static final String INSERT_OUTBOX_SQL = """
+            INSERT INTO CHANGE_OUTBOX (ENTITY_TYPE, ENTITY_ID, CHANGE_TYPE, CREATED_AT)
+            VALUES(?, ?, ?, ?)""";
+
+    private final SubmissionPublisher<ChangeEvent> publisher = new SubmissionPublisher<>();
+    private final Map<Connection, PreparedStatement> outboxStatements = new ConcurrentHashMap<>();
+    private final LongAdder dropped = new LongAdder();
+    private final boolean writeOutbox;
+
+    public ChangeFeed() {
+        this(false);
+    }
+
+    public ChangeFeed(boolean writeOutbox) {
+        this.writeOutbox = writeOutbox;
+    }
+
+    public void record(Connection connection, ChangeEvent event) {
+        if (writeOutbox) {
+            try {
+                PreparedStatement ps = outboxStatements.get(connection);
+                if (ps == null) {
+                    ps = connection.prepareStatement(INSERT_OUTBOX_SQL);
+                    outboxStatements.put(connection, ps);
+                }
+                ps.setString(1, event.entityType());
+                ps.setLong(2, event.entityId());
+                ps.setString(3, event.type().name());
+                ps.setTimestamp(4, Timestamp.from(event.occurredAt()));
+                ps.executeUpdate();
+            } catch (SQLException e) {
+                throw new DataException("Unable to write change to outbox", e);
+            }
+        }
+        if (publisher.hasSubscribers()) {
+            publisher.offer(event, (subscriber, droppedEvent) -> {
+                dropped.increment();
+                return false;
+            });
+        }
+    }
+
+    /**
+     * @return The number of events dropped because a subscriber was not keeping up.
+     */
+    public long getDroppedCount() {
+        return dropped.sum();
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super ChangeEvent> subscriber) {
+        publisher.subscribe(subscriber);
+    }
+
+    @Override
+    public void close() {
+        publisher.close();
+    }
+}
@@ -0,0 +1,222 @@
+package com.neutrinosys.peopledb.cdc;
+
+import com.neutrinosys.peopledb.exception.DataException;
+import com.neutrinosys.peopledb.model.ChangeEvent;
+import com.neutrinosys.peopledb.model.ChangeType;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reads committed events from CHANGE_OUTBOX (see ChangeFeed) in ID order, one batch per query,
+ * and publishes them to its subscribers.
+ * <p>
+ * Outbox IDs are handed out at insert time but become visible at commit time, so a transaction that
+ * commits late can make a row appear below IDs that have already been read. Every run of IDs skipped
+ * over is remembered as a gap and re-checked on each poll until its rows show up, in which case their
+ * events are published late and out of ID order, or until gapTimeout passes, after which the rest of
+ * the gap is treated as rolled back inserts and forgotten. Set gapTimeout longer than the longest
+ * expected write transaction. At most MAX_OPEN_GAPS gaps are tracked; past that the lowest is dropped.
+ * <p>
+ * The first poll that finds rows in the outbox raises lastSeenId to just below the lowest ID, so IDs
+ * already pruned from the table are not tracked as gaps.
+ * <p>
+ * Consumers persist getResumeId() to resume after a restart. It stays below any open gap, so
+ * delivery after a restart is at least once: events above it that were already published may be
+ * published again.
+ */
+public class OutboxPoller implements Flow.Publisher<ChangeEvent>, AutoCloseable {
+    public static final String SELECT_OUTBOX_SQL = """
+            SELECT ID, ENTITY_TYPE, ENTITY_ID, CHANGE_TYPE, CREATED_AT
+            FROM CHANGE_OUTBOX
+            WHERE ID > ?
+            ORDER BY ID
+            FETCH FIRST ? ROWS ONLY
+            """;
+    public static final String SELECT_OUTBOX_RANGE_SQL = """
+            SELECT ID, ENTITY_TYPE, ENTITY_ID, CHANGE_TYPE, CREATED_AT
+            FROM CHANGE_OUTBOX
+            WHERE ID BETWEEN ? AND ?
+            ORDER BY ID
+            """;
+    public static final String SELECT_MIN_OUTBOX_ID_SQL = "SELECT MIN(ID) FROM CHANGE_OUTBOX";
+    public static final Duration DEFAULT_GAP_TIMEOUT = Duration.ofMinutes(1);
+    public static final int MAX_OPEN_GAPS = 10_000;
+
+    private final SubmissionPublisher<ChangeEvent> publisher = new SubmissionPublisher<>();
+    private final NavigableMap<Long, Gap> gaps = new TreeMap<>();
+    private final Connection connection;
+    private final int batchSize;
+    private final Duration gapTimeout;
+    private volatile long lastSeenId;
+    private boolean seeded;
+    private ScheduledFuture<?> schedule;
+
+    public OutboxPoller(Connection connection, long lastSeenId, int batchSize) {
+        this(connection, lastSeenId, batchSize, DEFAULT_GAP_TIMEOUT);
+    }
+
+    public OutboxPoller(Connection connection, long lastSeenId, int batchSize, Duration gapTimeout) {
+        this.connection = connection;
+        this.lastSeenId = lastSeenId;
+        this.batchSize = batchSize;
+        this.gapTimeout = gapTimeout;
+    }
+
+    /**
+     * Publishes any events that have filled open gaps, then the next batch of new events.
+     * @return The number of new events published. Less than the batch size means the outbox is drained.
+     */
+    public synchronized int poll() {
+        try {
+            if (!seeded) {
+                seedFromMinimumId();
+            }
+            pollGaps();
+            int published = 0;
+            try (PreparedStatement ps = connection.prepareStatement(SELECT_OUTBOX_SQL)) {
+                ps.setLong(1, lastSeenId);
+                ps.setInt(2, batchSize);
+                try (ResultSet rs = ps.executeQuery()) {
+                    Instant now = Instant.now();
+                    while (rs.next()) {
+                        long id = rs.getLong("ID");
+                        if (id > lastSeenId + 1) {
+                            addGap(lastSeenId + 1, new Gap(id - 1, now));
+                        }
+                        publisher.submit(extractEvent(rs));
+                        lastSeenId = id;
+                        published++;
+                    }
+                }
+            }
+            return published;
+        } catch (SQLException e) {
+            throw new DataException("Unable to poll change outbox", e);
+        }
+    }
+
+    private void seedFromMinimumId() throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement(SELECT_MIN_OUTBOX_ID_SQL);
+             ResultSet rs = ps.executeQuery()) {
+            if (rs.next()) {
+                long minId = rs.getLong(1);
+                if (!rs.wasNull()) {
+                    lastSeenId = Math.max(lastSeenId, minId - 1);
+                    seeded = true;
+                }
+            }
+        }
+    }
+
+    private void pollGaps() throws SQLException {
+        if (gaps.isEmpty()) {
+            return;
+        }
+        try (PreparedStatement ps = connection.prepareStatement(SELECT_OUTBOX_RANGE_SQL)) {
+            ps.setLong(1, gaps.firstKey());
+            ps.setLong(2, gaps.lastEntry().getValue().end());
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    if (fillGap(rs.getLong("ID"))) {
+                        publisher.submit(extractEvent(rs));
+                    }
+                }
+            }
+        }
+        Instant expiry = Instant.now().minus(gapTimeout);
+        gaps.values().removeIf(gap -> !gap.noticedAt().isAfter(expiry));
+    }
+
+    private boolean fillGap(long id) {
+        Map.Entry<Long, Gap> entry = gaps.floorEntry(id);
+        if (entry == null || id > entry.getValue().end()) {
+            return false;
+        }
+        long start = entry.getKey();
+        Gap gap = gaps.remove(start);
+        if (start < id) {
+            addGap(start, new Gap(id - 1, gap.noticedAt()));
+        }
+        if (id < gap.end()) {
+            addGap(id + 1, new Gap(gap.end(), gap.noticedAt()));
+        }
+        return true;
+    }
+
+    private void addGap(long start, Gap gap) {
+        gaps.put(start, gap);
+        if (gaps.size() > MAX_OPEN_GAPS) {
+            gaps.pollFirstEntry();
+        }
+    }
+
+    private ChangeEvent extractEvent(ResultSet rs) throws SQLException {
+        return new ChangeEvent(
+                ChangeType.valueOf(rs.getString("CHANGE_TYPE")),
+                rs.getString("ENTITY_TYPE"),
+                rs.getLong("ENTITY_ID"),
+                rs.getTimestamp("CREATED_AT").toInstant(),
+                null);
+    }
+
+    public synchronized void start(ScheduledExecutorService scheduler, Duration interval) {
+        schedule = scheduler.scheduleWithFixedDelay(() -> {
+            while (poll() == batchSize) {
+                // keep draining until a short batch
+            }
+        }, 0, interval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * @return The highest outbox ID read so far. Lower IDs may still be published if their gap fills.
+     */
+    public long getLastSeenId() {
+        return lastSeenId;
+    }
+
+    /**
+     * @return The ID to pass back in as lastSeenId after a restart without losing open gaps.
+     */
+    public synchronized long getResumeId() {
+        return gaps.isEmpty() ? lastSeenId : gaps.firstKey() - 1;
+    }
+
+    /**
+     * @return The number of runs of skipped IDs still waiting for a late commit.
+     */
+    public synchronized int getOpenGapCount() {
+        return gaps.size();
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super ChangeEvent> subscriber) {
+        publisher.subscribe(subscriber);
+    }
+
+    @Override
+    public synchronized void close() {
+        if (schedule != null) {
+            schedule.cancel(false);
+        }
+        publisher.close();
+    }
+
+    /**
+     * A run of skipped IDs from its key in the gaps map up to end, inclusive.
+     */
+    private record Gap(long end, Instant noticedAt) {
+    }
+}
@@ -0,0 +1,113 @@
+package com.neutrinosys.peopledb.dialect;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.OptionalLong;
+
+/**
+ * The database engine a repository is talking to, detected from the connection's DatabaseMetaData.
+ * Repositories use it to pick engine-specific @SQL variants and to render generic operations
+ * the fastest way each engine allows.
+ */
+public enum Dialect {
+    H2,
+    POSTGRES,
+    GENERIC;
+
+    public static Dialect detect(Connection connection) throws SQLException {
+        String productName = connection.getMetaData().getDatabaseProductName().toUpperCase();
+        if (productName.contains("H2")) return H2;
+        if (productName.contains("POSTGRES")) return POSTGRES;
+        return GENERIC;
+    }
+
+    /**
+     * Prepares an INSERT whose generated ID can be read with getGeneratedKeys().
+     * On Postgres, RETURN_GENERATED_KEYS makes the driver append "RETURNING *", so only the ID column is asked for.
+     */
+    public PreparedStatement prepareInsert(Connection connection, String sql, String idColumn) throws SQLException {
+        return switch (this) {
+            case POSTGRES -> connection.prepareStatement(sql, new String[]{idColumn.toLowerCase()});
+            default -> connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS);
+        };
+    }
+
+    /**
+     * @return The column definition for a generated BIGINT primary key, as used by Schema.
+     */
+    public String getIdentityColumn() {
+        return switch (this) {
+            case POSTGRES -> "BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY";
+            default -> "BIGINT AUTO_INCREMENT PRIMARY KEY";
+        };
+    }
+
+    /**
+     * @return The SQL type name to use with Connection.createArrayOf for BIGINT arrays.
+     */
+    public String getBigintArrayType() {
+        return switch (this) {
+            case POSTGRES -> "int8";
+            default -> "BIGINT";
+        };
+    }
+
+    /**
+     * Moves the identity behind the column past the highest ID in the table, so rows inserted with
+     * explicit IDs do not collide with later generated ones. Does nothing on GENERIC.
+     */
+    public void restartIdentity(Connection connection, String table, String idColumn) throws SQLException {
+        try (Statement stmt = connection.createStatement()) {
+            switch (this) {
+                case H2 -> {
+                    ResultSet rs = stmt.executeQuery("SELECT COALESCE(MAX(%s), 0) + 1 FROM %s".formatted(idColumn, table));
+                    rs.next();
+                    stmt.execute("ALTER TABLE %s ALTER COLUMN %s RESTART WITH %d".formatted(table, idColumn, rs.getLong(1)));
+                }
+                case POSTGRES -> stmt.execute("SELECT setval(pg_get_serial_sequence('%s', '%s'), (SELECT COALESCE(MAX(%s), 0) + 1 FROM %s), false)"
+                        .formatted(table.toLowerCase(), idColumn.toLowerCase(), idColumn, table));
+                case GENERIC -> {
+                }
+            }
+        }
+    }
+
+    /**
+     * @return The planner's estimate of the table's row count, or empty when the dialect has none or
+     *         the table has not been analyzed yet.
+     */
+    public OptionalLong estimateRowCount(Connection connection, String table) throws SQLException {
+        String sql = switch (this) {
+            case POSTGRES -> "SELECT reltuples::bigint FROM pg_class WHERE oid = to_regclass(?)";
+            case H2 -> "SELECT ROW_COUNT_ESTIMATE FROM INFORMATION_SCHEMA.TABLES WHERE TABLE_NAME = ? AND TABLE_SCHEMA = SCHEMA()";
+            case GENERIC -> null;
+        };
+        if (sql == null) return OptionalLong.empty();
+        try (PreparedStatement ps = connection.prepareStatement(sql)) {
+            ps.setString(1, this == POSTGRES ? table.toLowerCase() : table);
+            ResultSet rs = ps.executeQuery();
+            if (!rs.next() || rs.getLong(1) < 0) return OptionalLong.empty();
+            return OptionalLong.of(rs.getLong(1));
+        }
+    }
+
+    /**
+     * @return Whether the connection's current transaction has made writes that are not committed yet.
+     *         GENERIC cannot tell and always answers true.
+     */
+    public boolean hasUncommittedWrites(Connection connection) throws SQLException {
+        String sql = switch (this) {
+            case POSTGRES -> "SELECT txid_current_if_assigned() IS NOT NULL";
+            case H2 -> "SELECT CONTAINS_UNCOMMITTED FROM INFORMATION_SCHEMA.SESSIONS WHERE ID = SESSION_ID()";
+            case GENERIC -> null;
+        };
+        if (sql == null) return true;
+        try (Statement stmt = connection.createStatement()) {
+            ResultSet rs = stmt.executeQuery(sql);
+            return !rs.next() || rs.getBoolean(1);
+        }
+    }
+}
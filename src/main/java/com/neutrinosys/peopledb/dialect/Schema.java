@@ -0,0 +1,65 @@
+package com.neutrinosys.peopledb.dialect;
+
+import com.neutrinosys.peopledb.exception.DataException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Creates the ADDRESSES, PEOPLE and CHANGE_OUTBOX tables the repositories expect, from the
+ * schema.sql script on the classpath. Tables that already exist are left alone.
+ */
+public final class Schema {
+    public static final String SCRIPT = "/schema.sql";
+    public static final String ADD_PEOPLE_VERSION_SQL = "ALTER TABLE PEOPLE ADD COLUMN IF NOT EXISTS VERSION BIGINT DEFAULT 0 NOT NULL";
+    private static final String ID_PLACEHOLDER = "${ID}";
+
+    private Schema() {
+    }
+
+    /**
+     * Creates the tables with the dialect's own identity column for IDs.
+     */
+    public static void create(Connection connection) throws SQLException {
+        create(connection, Dialect.detect(connection).getIdentityColumn());
+    }
+
+    /**
+     * Creates the tables with idColumn as the definition of every ID column,
+     * e.g. "BIGINT AUTO_INCREMENT(1, 3) PRIMARY KEY" to interleave IDs across shards.
+     */
+    public static void create(Connection connection, String idColumn) throws SQLException {
+        try (Statement stmt = connection.createStatement()) {
+            for (String sql : readScript().replace(ID_PLACEHOLDER, idColumn).split(";")) {
+                if (!sql.isBlank()) {
+                    stmt.execute(sql);
+                }
+            }
+        }
+    }
+
+    /**
+     * Brings a PEOPLE table created before optimistic locking up to date by adding its VERSION column.
+     * Does nothing when the column is already there.
+     */
+    public static void migrate(Connection connection) throws SQLException {
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute(ADD_PEOPLE_VERSION_SQL);
+        }
+    }
+
+    private static String readScript() {
+        try (InputStream in = Schema.class.getResourceAsStream(SCRIPT)) {
+            if (in == null) {
+                throw new DataException("Schema script not found on the classpath: " + SCRIPT);
+            }
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new DataException("Unable to read schema script " + SCRIPT, e);
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package com.neutrinosys.peopledb.exception;
+
+import com.neutrinosys.peopledb.model.UpsertResult;
+
+import java.util.List;
+
+/**
+ * Thrown by upsertAll when some updates found their entity changed or deleted concurrently.
+ * Every other entity has been written, and getResult() counts those writes.
+ */
+public class UpsertConflictException extends VersionConflictException {
+    private final UpsertResult result;
+
+    public UpsertConflictException(String msg, List<?> conflicts, UpsertResult result) {
+        super(msg, conflicts);
+        this.result = result;
+    }
+
+    public UpsertResult getResult() {
+        return result;
+    }
+}
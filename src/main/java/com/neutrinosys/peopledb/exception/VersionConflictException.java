@@ -0,0 +1,20 @@
+package com.neutrinosys.peopledb.exception;
+
+import java.util.List;
+
+/**
+ * Thrown when an update or delete finds the row changed or removed since the entity was read.
+ * Batched writes apply every non-conflicting entity and then throw with all the conflicting ones.
+ */
+public class VersionConflictException extends DataException {
+    private final List<?> conflicts;
+
+    public VersionConflictException(String msg, List<?> conflicts) {
+        super(msg);
+        this.conflicts = List.copyOf(conflicts);
+    }
+
+    public List<?> getConflicts() {
+        return conflicts;
+    }
+}
@@ -0,0 +1,10 @@
+package com.neutrinosys.peopledb.model;
+
+import java.time.Instant;
+
+/**
+ * A write made through a repository. {@code entity} is the written object for events
+ * published in-process and null for events read back from the outbox table.
+ */
+public record ChangeEvent(ChangeType type, String entityType, long entityId, Instant occurredAt, Object entity) {
+}
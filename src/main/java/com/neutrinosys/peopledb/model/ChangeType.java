@@ -0,0 +1,7 @@
+package com.neutrinosys.peopledb.model;
+
+public enum ChangeType {
+    INSERT,
+    UPDATE,
+    DELETE
+}
@@ -7,5 +7,8 @@ public enum CrudOperation {
     FIND_ALL,
     DELETE_ONE,
     DELETE_MANY,
-    COUNT
+    COUNT,
+    FIND_BY_IDS,
+    FIND_BY_NATURAL_KEYS,
+    UPSERT
 }
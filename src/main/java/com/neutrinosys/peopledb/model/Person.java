@@ -1,34 +1,64 @@
 package com.neutrinosys.peopledb.model;
 
 import com.neutrinosys.peopledb.annotation.Id;
+import com.neutrinosys.peopledb.annotation.Version;
 
 import java.math.BigDecimal;
+import java.time.Instant;
 import java.time.ZoneId;
+import java.time.ZoneOffset;
 import java.time.ZonedDateTime;
 import java.util.HashSet;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
 
+/**
+ * Bulk reads create a lot of these, so the optional parts of a person are kept as nullable
+ * fields (the Optional getters wrap them on demand), the children set is only created by the
+ * first addChild or getChildren, and DOB is held as an epoch second/nano pair that is only turned into a
+ * ZonedDateTime when getDob is called.
+ */
 public class Person {
+    public static final ZoneId UTC = ZoneOffset.UTC;
+
     @Id
     private Long id;
 
+    @Version
+    private long version;
+
     private String firstName;
     private String lastName;
+    private long dobEpochSecond;
+    private int dobNano;
+    private ZoneId dobZone;
     private ZonedDateTime dob;
-    private BigDecimal salary = new BigDecimal("0");
+    private BigDecimal salary = BigDecimal.ZERO;
     private String email;
-    private Optional<Address> homeAddress = Optional.empty();
-    private Optional<Address> businessAddress = Optional.empty();
-    private Set<Person> children = new HashSet<>();
-    private Optional<Person> parent = Optional.empty();
+    private Address homeAddress;
+    private Address businessAddress;
+    private Set<Person> children;
+    private Person parent;
 
     public Person(long id, String firstName, String lastName, ZonedDateTime dob, BigDecimal salary) {
         this(id, firstName, lastName, dob);
         this.salary = salary;
     }
 
+    /**
+     * Creates a person whose DOB is given as a UTC epoch second/nano pair, without creating a ZonedDateTime.
+     */
+    public Person(long id, String firstName, String lastName, long dobEpochSecond, int dobNano, BigDecimal salary) {
+        this.id = id;
+        this.firstName = firstName;
+        this.lastName = lastName;
+        this.dobEpochSecond = dobEpochSecond;
+        this.dobNano = dobNano;
+        this.dobZone = UTC;
+        this.salary = salary;
+    }
+
     public Person(Long id, String firstName, String lastName, ZonedDateTime dob) {
         this(firstName, lastName, dob);
         this.id = id;
@@ -37,7 +67,7 @@ public class Person {
     public Person(String firstName, String lastName, ZonedDateTime dob) {
         this.firstName = firstName;
         this.lastName = lastName;
-        this.dob = dob;
+        setDob(dob);
     }
 
     public Long getId() {
@@ -65,11 +95,27 @@ public class Person {
     }
 
     public ZonedDateTime getDob() {
+        if (dob == null && dobZone != null) {
+            dob = ZonedDateTime.ofInstant(Instant.ofEpochSecond(dobEpochSecond, dobNano), dobZone);
+        }
         return dob;
     }
 
     public void setDob(ZonedDateTime dob) {
         this.dob = dob;
+        if (dob == null) {
+            this.dobEpochSecond = 0;
+            this.dobNano = 0;
+            this.dobZone = null;
+        } else {
+            this.dobEpochSecond = dob.toEpochSecond();
+            this.dobNano = dob.getNano();
+            this.dobZone = dob.getZone();
+        }
+    }
+
+    public long getDobEpochSecond() {
+        return dobEpochSecond;
     }
 
     public BigDecimal getSalary() {
@@ -80,6 +126,14 @@ public class Person {
         this.salary = salary;
     }
 
+    public long getVersion() {
+        return version;
+    }
+
+    public void setVersion(long version) {
+        this.version = version;
+    }
+
     public String getEmail() {
         return email;
     }
@@ -94,7 +148,7 @@ public class Person {
                 "id=" + id +
                 ", firstName='" + firstName + '\'' +
                 ", lastName='" + lastName + '\'' +
-                ", dob=" + dob +
+                ", dob=" + getDob() +
                 '}';
     }
 
@@ -104,44 +158,60 @@ public class Person {
         if (o == null || getClass() != o.getClass()) return false;
         Person person = (Person) o;
         return Objects.equals(id, person.id) && firstName.equals(person.firstName) && lastName.equals(person.lastName) &&
-                dob.withZoneSameInstant(ZoneId.of("+0")).equals(person.dob.withZoneSameInstant(ZoneId.of("+0")));
+                (dobZone == null) == (person.dobZone == null) &&
+                dobEpochSecond == person.dobEpochSecond && dobNano == person.dobNano;
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(id, firstName, lastName, dob);
+        int result = Objects.hashCode(id);
+        result = 31 * result + Objects.hashCode(firstName);
+        result = 31 * result + Objects.hashCode(lastName);
+        result = 31 * result + Long.hashCode(dobEpochSecond);
+        result = 31 * result + dobNano;
+        return result;
     }
 
     public void setHomeAddress(Address homeAddress) {
-        this.homeAddress = Optional.ofNullable(homeAddress);
+        this.homeAddress = homeAddress;
     }
 
     public Optional<Address> getHomeAddress() {
-        return homeAddress;
+        return Optional.ofNullable(homeAddress);
     }
 
     public void setBusinessAddress(Address businessAddress) {
-        this.businessAddress = Optional.ofNullable(businessAddress);
+        this.businessAddress = businessAddress;
     }
 
     public Optional<Address> getBusinessAddress() {
-        return businessAddress;
+        return Optional.ofNullable(businessAddress);
     }
 
     public void addChild(Person child) {
+        if (children == null) {
+            children = new HashSet<>();
+        }
         children.add(child);
         child.setParent(this);
     }
 
     public void setParent(Person parent) {
-        this.parent = Optional.ofNullable(parent);
+        this.parent = parent;
     }
 
     public Optional<Person> getParent() {
-        return parent;
+        return Optional.ofNullable(parent);
     }
 
+    /**
+     * @return The mutable set of children. It is created on first use, so people read in bulk
+     * without ever touching their children don't allocate one.
+     */
     public Set<Person> getChildren() {
+        if (children == null) {
+            children = new HashSet<>();
+        }
         return children;
     }
 }
@@ -0,0 +1,8 @@
+package com.neutrinosys.peopledb.model;
+
+public enum PersonGrouping {
+    LAST_NAME,
+    BIRTH_YEAR,
+    HOME_REGION,
+    HOME_STATE
+}
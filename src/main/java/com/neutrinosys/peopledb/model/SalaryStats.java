@@ -0,0 +1,10 @@
+package com.neutrinosys.peopledb.model;
+
+import java.math.BigDecimal;
+
+/**
+ * One row of a salary aggregation. {@code groupKey} is null for ungrouped results
+ * and for the bucket of people that have no value for the grouping column.
+ */
+public record SalaryStats(String groupKey, long count, BigDecimal sum, BigDecimal avg, BigDecimal min, BigDecimal max) {
+}
@@ -0,0 +1,12 @@
+package com.neutrinosys.peopledb.model;
+
+import java.time.Duration;
+
+/**
+ * @param addresses The number of ADDRESSES rows written or restored.
+ * @param people The number of PEOPLE rows written or restored.
+ * @param bytes The size of the snapshot file.
+ * @param elapsed How long the export or restore took.
+ */
+public record SnapshotSummary(long addresses, long people, long bytes, Duration elapsed) {
+}
@@ -0,0 +1,7 @@
+package com.neutrinosys.peopledb.model;
+
+public record UpsertResult(int inserted, int updated, int unchanged) {
+    public UpsertResult plus(UpsertResult other) {
+        return new UpsertResult(inserted + other.inserted, updated + other.updated, unchanged + other.unchanged);
+    }
+}
@@ -0,0 +1,18 @@
+package com.neutrinosys.peopledb.model;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * @param timeToReady How long the whole warm-up took.
+ * @param statementsPrepared The number of operation statements that were prepared and validated.
+ * @param failures One message per operation whose SQL failed to prepare against the live schema,
+ *                 plus one if the workload threw.
+ * @param workloadP99 The 99th percentile latency of the second half of the workload iterations,
+ *                    or zero when no workload was run.
+ */
+public record WarmupReport(Duration timeToReady, int statementsPrepared, List<String> failures, Duration workloadP99) {
+    public boolean isReady() {
+        return failures.isEmpty();
+    }
+}
@@ -4,6 +4,7 @@ import com.neutrinosys.peopledb.annotation.SQL;
 import com.neutrinosys.peopledb.model.Address;
 import com.neutrinosys.peopledb.model.CrudOperation;
 import com.neutrinosys.peopledb.model.Region;
+import com.neutrinosys.peopledb.routing.ConnectionRouter;
 
 import java.sql.Connection;
 import java.sql.PreparedStatement;
@@ -15,6 +16,10 @@ public class AddressRepository extends CrudRepository<Address> {
         super(connection);
     }
 
+    public AddressRepository(ConnectionRouter router) {
+        super(router);
+    }
+
     @Override
     @SQL(operationType = CrudOperation.FIND_BY_ID, value = """
             SELECT ID, STREET_ADDRESS, ADDRESS2, CITY, STATE, POSTCODE, COUNTY, REGION, COUNTRY
@@ -1,31 +1,71 @@
 package com.neutrinosys.peopledb.repository;
 
-import com.neutrinosys.peopledb.annotation.Id;
 import com.neutrinosys.peopledb.annotation.MultiSQL;
 import com.neutrinosys.peopledb.annotation.SQL;
+import com.neutrinosys.peopledb.cache.ResultCache;
+import com.neutrinosys.peopledb.cdc.ChangeFeed;
+import com.neutrinosys.peopledb.dialect.Dialect;
 import com.neutrinosys.peopledb.exception.DataException;
+import com.neutrinosys.peopledb.exception.UpsertConflictException;
+import com.neutrinosys.peopledb.exception.VersionConflictException;
+import com.neutrinosys.peopledb.model.ChangeEvent;
+import com.neutrinosys.peopledb.model.ChangeType;
 import com.neutrinosys.peopledb.model.CrudOperation;
+import com.neutrinosys.peopledb.model.UpsertResult;
+import com.neutrinosys.peopledb.model.WarmupReport;
+import com.neutrinosys.peopledb.routing.ConnectionRouter;
 
 import java.sql.*;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Supplier;
 import java.util.stream.Stream;
 
 import static java.util.stream.Collectors.joining;
 
+/**
+ * Every public operation reports a failed SQL call by throwing a DataException with the
+ * SQLException as its cause. Version conflicts are reported with VersionConflictException, which
+ * is a DataException too.
+ */
 abstract class CrudRepository<T> {
+    private static final int BATCH_SIZE = 500;
+    private static final Map<Class<?>, IdAccessor<?>> ID_ACCESSORS = new ConcurrentHashMap<>();
+    private static final Map<Class<?>, VersionAccessor<?>> VERSION_ACCESSORS = new ConcurrentHashMap<>();
+
     protected Connection connection;
+    protected ConnectionRouter router;
+    protected Dialect dialect;
     private PreparedStatement savePS;
-    private PreparedStatement findByIdPS;
+    private final Map<Connection, Map<CrudOperation, PreparedStatement>> statements = new HashMap<>();
+    private ChangeFeed changeFeed;
+    private ResultCache resultCache;
+    private final SqlTable generatedSql = loadGenerated(getClass().getName() + "_Sql", getClass());
 
     public CrudRepository(Connection connection) {
+        this(new ConnectionRouter(connection));
+    }
+
+    /**
+     * Writes run on the router's primary connection; findById, findAll, findAllById and count
+     * run on whichever connection the router picks for reads.
+     */
+    public CrudRepository(ConnectionRouter router) {
         try {
-            this.connection = connection;
-            savePS = connection.prepareStatement(getSqlByAnnotation(CrudOperation.SAVE, this::getSaveSql), Statement.RETURN_GENERATED_KEYS);
-            findByIdPS = connection.prepareStatement(getSqlByAnnotation(CrudOperation.FIND_BY_ID, this::getFindByIdSql));
+            this.router = router;
+            this.connection = router.getPrimary();
+            this.dialect = Dialect.detect(connection);
+            savePS = dialect.prepareInsert(connection, getSqlByAnnotation(CrudOperation.SAVE, this::getSaveSql), getIdColumn());
         } catch (SQLException e) {
             e.printStackTrace();
             throw new DataException("Unable to create prepared statements for CrudRepository", e);
@@ -34,132 +74,632 @@ abstract class CrudRepository<T> {
 
     public T save(T entity) {
         try {
+            router.recordWrite();
             mapForSave(entity, savePS);
             int recordsAffected = savePS.executeUpdate();
             ResultSet rs = savePS.getGeneratedKeys();
             while (rs.next()) {
                 long id = rs.getLong(1);
                 setIdByAnnotation(id, entity);
+                recordChange(ChangeType.INSERT, id, entity);
                 postSave(entity, id);
 //                System.out.println(entity);
             }
 //            System.out.printf("Records affected: %d%n", recordsAffected);
         } catch (SQLException e) {
-            e.printStackTrace();
+            throw new DataException("Unable to save entity", e);
         }
         return entity;
     }
 
     public Optional<T> findById(Long id) {
-        T entity = null;
+        T entity;
 
         try {
-            findByIdPS.setLong(1, id);
-            ResultSet rs = findByIdPS.executeQuery();
-            while (rs.next()) {
-                entity = extractEntityFromResultSet(rs);
-            }
+            entity = read(readConnection -> {
+                PreparedStatement findByIdPS = getStatement(readConnection, CrudOperation.FIND_BY_ID);
+                findByIdPS.setLong(1, id);
+                ResultSet rs = findByIdPS.executeQuery();
+                T found = null;
+                while (rs.next()) {
+                    found = extractEntityFromResultSet(rs);
+                }
+                return found;
+            });
         } catch (SQLException e) {
-            e.printStackTrace();
+            throw new DataException("Unable to find entity by ID", e);
         }
         return Optional.ofNullable(entity);
     }
 
+    /**
+     * Returns the statement for an operation whose SQL has no named parameters,
+     * preparing it on first use and reusing it on that connection afterwards.
+     */
+    private PreparedStatement getStatement(Connection statementConnection, CrudOperation operationType) throws SQLException {
+        Map<CrudOperation, PreparedStatement> connectionStatements =
+                statements.computeIfAbsent(statementConnection, c -> new EnumMap<>(CrudOperation.class));
+        PreparedStatement ps = connectionStatements.get(operationType);
+        if (ps == null) {
+            String sql = getSqlByAnnotation(operationType, getSqlGetter(operationType));
+            ps = operationType == CrudOperation.FIND_ALL
+                    ? statementConnection.prepareStatement(sql, ResultSet.TYPE_SCROLL_INSENSITIVE, ResultSet.CONCUR_READ_ONLY)
+                    : statementConnection.prepareStatement(sql);
+            connectionStatements.put(operationType, ps);
+        }
+        return ps;
+    }
+
     public List<T> findAll() {
+        List<T> entities;
+        try {
+            entities = read(readConnection -> {
+                List<T> found = new ArrayList<>();
+                PreparedStatement ps = getStatement(readConnection, CrudOperation.FIND_ALL);
+                ResultSet rs = ps.executeQuery();
+                while (rs.next()) {
+                    found.add(extractEntityFromResultSet(rs));
+                }
+                return found;
+            });
+        } catch (SQLException e) {
+            throw new DataException("Unable to find all entities", e);
+        }
+        return entities;
+    }
+
+    /**
+     * Looks up many entities in one round trip per BATCH_SIZE IDs.
+     * IDs that don't exist are skipped.
+     */
+    public List<T> findAllById(Collection<Long> ids) {
         List<T> entities = new ArrayList<>();
+        String sql = getSqlByAnnotation(CrudOperation.FIND_BY_IDS, this::getFindByIdsSql);
         try {
-            PreparedStatement ps = connection.prepareStatement(
-                    getSqlByAnnotation(CrudOperation.FIND_ALL, this::getFindAllSql),
-                    ResultSet.TYPE_SCROLL_INSENSITIVE,
-                    ResultSet.CONCUR_READ_ONLY);
-            ResultSet rs = ps.executeQuery();
-            while (rs.next()) {
-                entities.add(extractEntityFromResultSet(rs));
+            for (List<?> chunk : chunk(new ArrayList<>(ids))) {
+                entities.addAll(read(readConnection -> findByKeys(readConnection, sql, ":ids", chunk)));
             }
         } catch (SQLException e) {
-            e.printStackTrace();
+            throw new DataException("Unable to look up entities by ID", e);
         }
         return entities;
     }
 
     public long count() {
-        long count = 0;
-        try {
-            PreparedStatement ps = connection.prepareStatement(getSqlByAnnotation(CrudOperation.COUNT, this::getCountSql));
-            ResultSet rs = ps.executeQuery();
-            if (rs.next()) {
-                count = rs.getLong(1);
+        return cached("count", List.of(), () -> {
+            try {
+                return read(readConnection -> {
+                    PreparedStatement ps = getStatement(readConnection, CrudOperation.COUNT);
+                    ResultSet rs = ps.executeQuery();
+                    return rs.next() ? rs.getLong(1) : 0L;
+                });
+            } catch (SQLException e) {
+                throw new DataException("Unable to count entities", e);
             }
+        });
+    }
+
+    /**
+     * Serves count() and the other scalar and aggregate reads from the cache, within its staleness
+     * windows. Every write made through this repository invalidates it. The cache may be shared with
+     * other repositories; see ResultCache.
+     */
+    public void setResultCache(ResultCache resultCache) {
+        this.resultCache = resultCache;
+    }
+
+    /**
+     * Runs the loader through the result cache when one is set.
+     */
+    protected <V> V cached(String operation, List<?> args, Supplier<V> loader) {
+        return resultCache == null ? loader.get() : resultCache.get(getClass(), operation, args, loader);
+    }
+
+    /**
+     * Runs a query on the connection the router picks for reads. If that is a replica and the
+     * query fails because the replica is no longer reachable, the replica is marked unhealthy
+     * and the query is retried on the primary.
+     */
+    protected <R> R read(ReadOperation<R> operation) throws SQLException {
+        Connection readConnection = router.forRead();
+        try {
+            return operation.apply(readConnection);
         } catch (SQLException e) {
-            e.printStackTrace();
+            if (readConnection == connection || readConnection.isValid(1)) throw e;
+            router.markUnhealthy(readConnection);
+            statements.remove(readConnection);
+            return operation.apply(connection);
         }
-        return count;
     }
 
+    @FunctionalInterface
+    protected interface ReadOperation<R> {
+        R apply(Connection readConnection) throws SQLException;
+    }
+
+    /**
+     * For an entity with a @Version field, the DELETE_ONE SQL must also match VERSION on the
+     * second parameter; a VersionConflictException is thrown when no row matched.
+     */
     public void delete(T entity) {
         try {
-            PreparedStatement ps = connection.prepareStatement(getSqlByAnnotation(CrudOperation.DELETE_ONE, this::getDeleteSql));
-            ps.setLong(1, getIdByAnnotation(entity));
+            router.recordWrite();
+            PreparedStatement ps = getStatement(connection, CrudOperation.DELETE_ONE);
+            Long id = getIdByAnnotation(entity);
+            bindForDelete(entity, ps);
             int affectedRecordCount = ps.executeUpdate();
-            System.out.println(affectedRecordCount);
+            if (affectedRecordCount > 0) {
+                recordChange(ChangeType.DELETE, id, entity);
+            } else if (getVersionAccessor(entity).isVersioned()) {
+                throw new VersionConflictException("Entity " + id + " was changed or deleted concurrently", List.of(entity));
+            }
         } catch (SQLException e) {
-            e.printStackTrace();
+            throw new DataException("Unable to delete entity", e);
+        }
+    }
+
+    private void bindForDelete(T entity, PreparedStatement ps) throws SQLException {
+        ps.setLong(1, getIdByAnnotation(entity));
+        VersionAccessor<T> versionAccessor = getVersionAccessor(entity);
+        if (versionAccessor.isVersioned()) {
+            ps.setLong(2, versionAccessor.getVersion(entity));
+        }
+    }
+
+    /**
+     * Attaches a feed that will receive an event for every write made through this repository.
+     */
+    public void setChangeFeed(ChangeFeed changeFeed) {
+        this.changeFeed = changeFeed;
+    }
+
+    private void recordChange(ChangeType type, long id, T entity) {
+        if (resultCache != null) {
+            resultCache.invalidateAll();
+        }
+        if (changeFeed != null) {
+            changeFeed.record(connection, new ChangeEvent(type, entity.getClass().getSimpleName(), id, Instant.now(), entity));
         }
     }
 
     private void setIdByAnnotation(Long id, T entity) {
-        Arrays.stream(entity.getClass().getDeclaredFields())
-                .filter(f -> f.isAnnotationPresent(Id.class))
-                .forEach(f -> {
-                    f.setAccessible(true);
-                    try {
-                        f.set(entity, id);
-                    } catch (IllegalAccessException e) {
-                        throw new RuntimeException("Unable to set ID field value.");
-                    }
-                });
+        getIdAccessor(entity).setId(entity, id);
     }
 
     private Long getIdByAnnotation(T entity) {
-        return Arrays.stream(entity.getClass().getDeclaredFields())
-                .filter(f -> f.isAnnotationPresent(Id.class))
-                .map(f -> {
-                    f.setAccessible(true);
-                    Long id = null;
-                    try {
-                        id = (long)f.get(entity);
-                    } catch (IllegalAccessException e) {
-                        e.printStackTrace();
-                    }
-                    return id;
-                })
-                .findFirst().orElseThrow(() -> new RuntimeException("No ID annotated field found."));
+        return getIdAccessor(entity).getId(entity);
     }
 
+    @SuppressWarnings("unchecked")
+    private VersionAccessor<T> getVersionAccessor(T entity) {
+        return (VersionAccessor<T>) VERSION_ACCESSORS.computeIfAbsent(entity.getClass(), entityClass ->
+                Optional.<VersionAccessor<?>>ofNullable(loadGenerated(entityClass.getName() + "_VersionAccessor", entityClass))
+                        .orElseGet(() -> new ReflectiveVersionAccessor<>(entityClass)));
+    }
+
+    @SuppressWarnings("unchecked")
+    private IdAccessor<T> getIdAccessor(T entity) {
+        return (IdAccessor<T>) ID_ACCESSORS.computeIfAbsent(entity.getClass(), entityClass ->
+                Optional.<IdAccessor<?>>ofNullable(loadGenerated(entityClass.getName() + "_IdAccessor", entityClass))
+                        .orElseGet(() -> new ReflectiveIdAccessor<>(entityClass)));
+    }
+
+    /**
+     * @return An instance of a class generated by the annotation processor, or null when it was not generated.
+     */
+    @SuppressWarnings("unchecked")
+    private static <G> G loadGenerated(String className, Class<?> neighbour) {
+        try {
+            return (G) Class.forName(className, true, neighbour.getClassLoader()).getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Versioned entities are deleted with one DELETE_ONE statement each, sent as a single JDBC batch,
+     * so that every entity's version is checked; the conflicting ones are reported together in one
+     * VersionConflictException after the others have been deleted.
+     */
     public void delete(T...entities) {
+        if (entities.length > 0 && getVersionAccessor(entities[0]).isVersioned()) {
+            deleteVersioned(entities);
+            return;
+        }
+        try {
+            router.recordWrite();
+            String sql = getSqlByAnnotation(CrudOperation.DELETE_MANY, this::getDeleteInSql);
+            Long[] ids = Arrays.stream(entities).map(this::getIdByAnnotation).toArray(Long[]::new);
+            if (sql.contains(":ids")) {
+                try (Statement stmt = connection.createStatement()) {
+                    stmt.executeUpdate(sql.replace(":ids", Arrays.stream(ids).map(String::valueOf).collect(joining(","))));
+                }
+            } else {
+                try (PreparedStatement ps = connection.prepareStatement(sql)) {
+                    ps.setArray(1, connection.createArrayOf(dialect.getBigintArrayType(), ids));
+                    ps.executeUpdate();
+                }
+            }
+            for (T entity : entities) {
+                recordChange(ChangeType.DELETE, getIdByAnnotation(entity), entity);
+            }
+        } catch (SQLException e) {
+            throw new DataException("Unable to delete entities", e);
+        }
+    }
+
+    private void deleteVersioned(T[] entities) {
+        List<T> conflicts = new ArrayList<>();
         try {
-            Statement stmt = connection.createStatement();
-            String ids = Arrays.stream(entities).map(this::getIdByAnnotation).map(String::valueOf).collect(joining(","));
-            int affectedRecordCount = stmt.executeUpdate(getSqlByAnnotation(CrudOperation.DELETE_MANY, this::getDeleteInSql).replace(":ids", ids));
-            System.out.println(affectedRecordCount);
+            router.recordWrite();
+            PreparedStatement ps = getStatement(connection, CrudOperation.DELETE_ONE);
+            for (T entity : entities) {
+                bindForDelete(entity, ps);
+                ps.addBatch();
+            }
+            int[] counts = ps.executeBatch();
+            for (int i = 0; i < entities.length; i++) {
+                if (counts[i] == 0) {
+                    conflicts.add(entities[i]);
+                } else {
+                    recordChange(ChangeType.DELETE, getIdByAnnotation(entities[i]), entities[i]);
+                }
+            }
         } catch (SQLException e) {
-            e.printStackTrace();
+            throw new DataException("Unable to delete entities", e);
+        }
+        if (!conflicts.isEmpty()) {
+            throw new VersionConflictException(conflicts.size() + " of " + entities.length + " entities were changed or deleted concurrently", conflicts);
         }
     }
 
+    /**
+     * For an entity with a @Version field, the UPDATE SQL must set VERSION = VERSION + 1 and match
+     * VERSION on the parameter after the ID. The entity's version is bumped when the update succeeds,
+     * and a VersionConflictException is thrown when no row matched.
+     */
     public void update(T entity) {
         try {
-            PreparedStatement ps = connection.prepareStatement(getSqlByAnnotation(CrudOperation.UPDATE, this::getUpdateSql));
-            mapForUpdate(entity, ps);
-            ps.setLong(5, getIdByAnnotation(entity));
-            ps.executeUpdate();
+            router.recordWrite();
+            PreparedStatement ps = getStatement(connection, CrudOperation.UPDATE);
+            bindForUpdate(entity, ps);
+            if (ps.executeUpdate() > 0) {
+                updated(entity);
+            } else if (getVersionAccessor(entity).isVersioned()) {
+                throw new VersionConflictException("Entity " + getIdByAnnotation(entity) + " was changed or deleted concurrently", List.of(entity));
+            }
         } catch (SQLException e) {
-            e.printStackTrace();
+            throw new DataException("Unable to update entity", e);
         }
     }
 
+    private void bindForUpdate(T entity, PreparedStatement ps) throws SQLException {
+        mapForUpdate(entity, ps);
+        ps.setLong(5, getIdByAnnotation(entity));
+        VersionAccessor<T> versionAccessor = getVersionAccessor(entity);
+        if (versionAccessor.isVersioned()) {
+            ps.setLong(6, versionAccessor.getVersion(entity));
+        }
+    }
+
+    private void updated(T entity) {
+        VersionAccessor<T> versionAccessor = getVersionAccessor(entity);
+        if (versionAccessor.isVersioned()) {
+            versionAccessor.setVersion(entity, versionAccessor.getVersion(entity) + 1);
+        }
+        recordChange(ChangeType.UPDATE, getIdByAnnotation(entity), entity);
+    }
+
+    public UpsertResult saveOrUpdate(T entity) {
+        return upsertAll(List.of(entity));
+    }
+
+    /**
+     * Inserts the entities that don't exist yet and updates the ones that do, skipping
+     * those whose stored values already match. An entity is matched on its @Id when it has
+     * one, otherwise on its natural key (see getNaturalKey), and is inserted when it has neither.
+     * Matched entities get the stored ID set on them. Natural keys must be unique within one call.
+     * Entities matched on their natural key also take the stored @Version, while entities matched
+     * on their @Id keep their own. Updates that find the version changed are skipped, and once
+     * every chunk has been written they are reported together in one UpsertConflictException,
+     * which also carries the counts of the writes that were applied.
+     * <p>
+     * When the repository has an UPSERT @SQL for the current dialect, entities without an @Id
+     * and without cascaded parts (see hasCascades) are written with it, one statement per
+     * BATCH_SIZE entities. Everything else takes
+     * the portable path: one batched lookup per chunk, a save for each new entity, and one JDBC
+     * batch for all the updates.
+     */
+    public UpsertResult upsertAll(Collection<T> entities) {
+        router.recordWrite();
+        UpsertResult result = new UpsertResult(0, 0, 0);
+        List<T> remaining = new ArrayList<>(entities.size());
+        String upsertSql = getSqlByAnnotation(CrudOperation.UPSERT, () -> null);
+        if (upsertSql == null) {
+            remaining.addAll(entities);
+        } else {
+            List<T> keyed = new ArrayList<>();
+            for (T entity : entities) {
+                if (getIdByAnnotation(entity) == null && getNaturalKey(entity) != null && !hasCascades(entity)) {
+                    keyed.add(entity);
+                } else {
+                    remaining.add(entity);
+                }
+            }
+            for (List<T> chunk : chunk(keyed)) {
+                result = result.plus(upsertChunk(upsertSql, chunk));
+            }
+        }
+        List<T> conflicts = new ArrayList<>();
+        for (List<T> chunk : chunk(remaining)) {
+            result = result.plus(lookupAndUpsertChunk(chunk, conflicts));
+        }
+        if (!conflicts.isEmpty()) {
+            throw new UpsertConflictException(conflicts.size() + " updates found their entity changed or deleted concurrently", conflicts, result);
+        }
+        return result;
+    }
+
+    private UpsertResult upsertChunk(String upsertSql, List<T> chunk) {
+        Map<Object, T> entitiesByKey = new HashMap<>();
+        chunk.forEach(e -> entitiesByKey.put(getNaturalKey(e), e));
+        int inserted = 0;
+        int updated = 0;
+        try (PreparedStatement ps = connection.prepareStatement(upsertSql)) {
+            mapForUpsert(chunk, ps);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    T entity = entitiesByKey.get(rs.getObject(1));
+                    long id = rs.getLong(2);
+                    setIdByAnnotation(id, entity);
+                    if (getVersionAccessor(entity).isVersioned()) {
+                        getVersionAccessor(entity).setVersion(entity, rs.getLong(4));
+                    }
+                    if (rs.getBoolean(3)) {
+                        inserted++;
+                        recordChange(ChangeType.INSERT, id, entity);
+                    } else {
+                        updated++;
+                        recordChange(ChangeType.UPDATE, id, entity);
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            throw new DataException("Unable to upsert entities", e);
+        }
+        return new UpsertResult(inserted, updated, chunk.size() - inserted - updated);
+    }
+
+    private UpsertResult lookupAndUpsertChunk(List<T> chunk, List<T> conflicts) {
+        List<Long> ids = new ArrayList<>();
+        List<Object> naturalKeys = new ArrayList<>();
+        for (T entity : chunk) {
+            Long id = getIdByAnnotation(entity);
+            Object naturalKey = getNaturalKey(entity);
+            if (id != null) {
+                ids.add(id);
+            } else if (naturalKey != null) {
+                naturalKeys.add(naturalKey);
+            }
+        }
+
+        Map<Long, T> storedById = new HashMap<>();
+        Map<Object, T> storedByNaturalKey = new HashMap<>();
+        try {
+            if (!ids.isEmpty()) {
+                findByKeys(connection, getSqlByAnnotation(CrudOperation.FIND_BY_IDS, this::getFindByIdsSql), ":ids", ids)
+                        .forEach(e -> storedById.put(getIdByAnnotation(e), e));
+            }
+            if (!naturalKeys.isEmpty()) {
+                findByKeys(connection, getSqlByAnnotation(CrudOperation.FIND_BY_NATURAL_KEYS, this::getFindByNaturalKeysSql), ":keys", naturalKeys)
+                        .forEach(e -> storedByNaturalKey.put(getNaturalKey(e), e));
+            }
+        } catch (SQLException e) {
+            throw new DataException("Unable to look up entities by key", e);
+        }
+
+        int inserted = 0;
+        int unchanged = 0;
+        List<T> changed = new ArrayList<>();
+        for (T entity : chunk) {
+            Long id = getIdByAnnotation(entity);
+            T stored = id != null ? storedById.get(id) : storedByNaturalKey.get(getNaturalKey(entity));
+            if (stored == null) {
+                save(entity);
+                if (getIdByAnnotation(entity) == null) {
+                    throw new DataException("Unable to insert entity during upsert: " + entity);
+                }
+                inserted++;
+            } else {
+                if (id == null && getVersionAccessor(entity).isVersioned()) {
+                    getVersionAccessor(entity).setVersion(entity, getVersionAccessor(stored).getVersion(stored));
+                }
+                setIdByAnnotation(getIdByAnnotation(stored), entity);
+                if (isUnchanged(stored, entity)) {
+                    unchanged++;
+                } else {
+                    changed.add(entity);
+                }
+            }
+        }
+
+        int updated = 0;
+        if (!changed.isEmpty()) {
+            int[] counts;
+            try {
+                PreparedStatement ps = getStatement(connection, CrudOperation.UPDATE);
+                for (T entity : changed) {
+                    bindForUpdate(entity, ps);
+                    ps.addBatch();
+                }
+                counts = ps.executeBatch();
+            } catch (SQLException e) {
+                throw new DataException("Unable to update entities", e);
+            }
+            for (int i = 0; i < changed.size(); i++) {
+                T entity = changed.get(i);
+                if (counts[i] == 0 && getVersionAccessor(entity).isVersioned()) {
+                    conflicts.add(entity);
+                } else {
+                    updated(entity);
+                    updated++;
+                }
+            }
+        }
+        return new UpsertResult(inserted, updated, unchanged);
+    }
+
+    private List<T> findByKeys(Connection queryConnection, String sql, String namedParameter, List<?> keys) throws SQLException {
+        List<T> entities = new ArrayList<>();
+        String placeholders = String.join(", ", Collections.nCopies(keys.size(), "?"));
+        try (PreparedStatement ps = queryConnection.prepareStatement(
+                sql.replace(namedParameter, placeholders),
+                ResultSet.TYPE_SCROLL_INSENSITIVE,
+                ResultSet.CONCUR_READ_ONLY)) {
+            for (int i = 0; i < keys.size(); i++) {
+                ps.setObject(i + 1, keys.get(i));
+            }
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    entities.add(extractEntityFromResultSet(rs));
+                }
+            }
+        }
+        return entities;
+    }
+
+    private static <E> List<List<E>> chunk(List<E> items) {
+        List<List<E>> chunks = new ArrayList<>();
+        for (int start = 0; start < items.size(); start += BATCH_SIZE) {
+            chunks.add(items.subList(start, Math.min(items.size(), start + BATCH_SIZE)));
+        }
+        return chunks;
+    }
+
+
+    public WarmupReport warmUp() {
+        return warmUp(() -> { }, 0);
+    }
+
+    /**
+     * Prepares the statement of every operation this repository has SQL for, on the primary and,
+     * for reads, on every replica, so the first real calls find them ready. Preparing validates the
+     * SQL against the live schema; failures are reported rather than thrown. PeopleRepository also
+     * primes its column-index cache from the FIND_BY_ID result metadata.
+     * <p>
+     * The workload, when given, is then run the given number of times inside a scratch transaction
+     * (a savepoint when a transaction is already open) that is rolled back afterwards. No change
+     * events are recorded for it. An exception thrown by the workload stops it, is reported as a
+     * failure and still leaves the scratch transaction rolled back.
+     */
+    public WarmupReport warmUp(Runnable workload, int iterations) {
+        long start = System.nanoTime();
+        List<String> failures = new ArrayList<>();
+        int prepared = 0;
+        for (CrudOperation operationType : CrudOperation.values()) {
+            String sql;
+            try {
+                sql = getSqlByAnnotation(operationType, getSqlGetter(operationType));
+            } catch (RuntimeException e) {
+                continue;
+            }
+            if (sql == null) continue;
+            try {
+                prepareForWarmUp(operationType, sql);
+                prepared++;
+            } catch (SQLException e) {
+                failures.add(operationType + ": " + e.getMessage());
+            }
+        }
+
+        Duration workloadP99 = Duration.ZERO;
+        if (iterations > 0) {
+            try {
+                workloadP99 = runScratchWorkload(workload, iterations);
+            } catch (SQLException | RuntimeException e) {
+                failures.add("workload: " + e);
+            }
+        }
+        return new WarmupReport(Duration.ofNanos(System.nanoTime() - start), prepared, failures, workloadP99);
+    }
+
+    private void prepareForWarmUp(CrudOperation operationType, String sql) throws SQLException {
+        switch (operationType) {
+            case SAVE -> savePS.getParameterMetaData();
+            case FIND_BY_ID, FIND_ALL, COUNT -> {
+                List<Connection> readConnections = new ArrayList<>(router.getReplicas());
+                readConnections.add(connection);
+                for (Connection readConnection : readConnections) {
+                    ResultSetMetaData metaData = getStatement(readConnection, operationType).getMetaData();
+                    if (operationType == CrudOperation.FIND_BY_ID && metaData != null) {
+                        primeColumnIndexes(metaData);
+                    }
+                }
+            }
+            case UPDATE, DELETE_ONE -> getStatement(connection, operationType).getParameterMetaData();
+            default -> {
+                try (PreparedStatement ps = connection.prepareStatement(sql.replace(":ids", "?").replace(":keys", "?"))) {
+                    ps.getParameterMetaData();
+                }
+            }
+        }
+    }
+
+    private Duration runScratchWorkload(Runnable workload, int iterations) throws SQLException {
+        ChangeFeed feed = changeFeed;
+        setChangeFeed(null);
+        boolean autoCommit = connection.getAutoCommit();
+        Savepoint savepoint = null;
+        if (autoCommit) {
+            connection.setAutoCommit(false);
+        } else {
+            savepoint = connection.setSavepoint();
+        }
+        long[] latencies = new long[iterations];
+        try {
+            for (int i = 0; i < iterations; i++) {
+                long iterationStart = System.nanoTime();
+                workload.run();
+                latencies[i] = System.nanoTime() - iterationStart;
+            }
+        } finally {
+            if (autoCommit) {
+                router.rollback();
+                connection.setAutoCommit(true);
+            } else {
+                connection.rollback(savepoint);
+            }
+            setChangeFeed(feed);
+            if (resultCache != null) {
+                resultCache.invalidateAll();
+            }
+        }
+        long[] steady = Arrays.copyOfRange(latencies, iterations / 2, iterations);
+        Arrays.sort(steady);
+        return Duration.ofNanos(steady[(int) Math.ceil(steady.length * 0.99) - 1]);
+    }
+
+    private Supplier<String> getSqlGetter(CrudOperation operationType) {
+        return switch (operationType) {
+            case SAVE -> this::getSaveSql;
+            case UPDATE -> this::getUpdateSql;
+            case FIND_BY_ID -> this::getFindByIdSql;
+            case FIND_ALL -> this::getFindAllSql;
+            case DELETE_ONE -> this::getDeleteSql;
+            case DELETE_MANY -> this::getDeleteInSql;
+            case COUNT -> this::getCountSql;
+            case FIND_BY_IDS -> this::getFindByIdsSql;
+            case FIND_BY_NATURAL_KEYS -> this::getFindByNaturalKeysSql;
+            case UPSERT -> () -> null;
+        };
+    }
 
     private String getSqlByAnnotation(CrudOperation operationType, Supplier<String> sqlGetter) {
+        if (generatedSql != null) {
+            String sql = generatedSql.getSql(operationType, dialect);
+            return sql != null ? sql : sqlGetter.get();
+        }
+
         Stream<SQL> multiSqlStream = Arrays.stream(this.getClass().getDeclaredMethods())
                 .filter(m -> m.isAnnotationPresent(MultiSQL.class))
                 .map(m -> m.getAnnotation(MultiSQL.class))
@@ -169,17 +709,25 @@ abstract class CrudRepository<T> {
                 .filter(m -> m.isAnnotationPresent(SQL.class))
                 .map(m -> m.getAnnotation(SQL.class));
 
-        return Stream.concat(multiSqlStream, sqlStream)
+        List<SQL> candidates = Stream.concat(multiSqlStream, sqlStream)
                 .filter(a -> a.operationType().equals(operationType))
+                .toList();
+
+        return candidates.stream()
+                .filter(a -> Arrays.asList(a.dialects()).contains(dialect))
+                .findFirst()
+                .or(() -> candidates.stream().filter(a -> a.dialects().length == 0).findFirst())
                 .map(SQL::value)
-                .findFirst().orElseGet(sqlGetter);
+                .orElseGet(sqlGetter);
     }
 
     /**
      *
      * @return Should return a SQL string like:
      * "DELETE FROM PEOPLE WHERE ID IN (:ids)"
-     * Be sure to include the '(:ids)' named parameter & call it 'ids'
+     * Be sure to include the '(:ids)' named parameter & call it 'ids'.
+     * Dialects with array parameters may instead use one "?" that binds to an
+     * array of the IDs, e.g. "DELETE FROM PEOPLE WHERE ID = ANY(?)"
      */
     protected String getDeleteInSql() {throw new RuntimeException("SQL not defined.");};
 
@@ -201,8 +749,64 @@ abstract class CrudRepository<T> {
 
     protected String getSaveSql() {throw new RuntimeException("SQL not defined.");}
 
+    /**
+     * @return A SQL string like "SELECT ... FROM PEOPLE WHERE ID IN (:ids)".
+     * The '(:ids)' named parameter is expanded to one "?" per ID.
+     */
+    protected String getFindByIdsSql() {throw new RuntimeException("SQL not defined.");}
+
+    /**
+     * @return A SQL string like "SELECT ... FROM PEOPLE WHERE EMAIL IN (:keys)".
+     * The '(:keys)' named parameter is expanded to one "?" per natural key.
+     */
+    protected String getFindByNaturalKeysSql() {throw new RuntimeException("SQL not defined.");}
+
+    /**
+     * @return The value that identifies an entity without an @Id, e.g. an email address,
+     * or null when the entity has none. Repositories that return non-null values must
+     * also supply FIND_BY_NATURAL_KEYS SQL.
+     */
+    protected Object getNaturalKey(T entity) {
+        return null;
+    }
+
+    /**
+     * @return True when saving incoming over stored would not change any updatable column.
+     */
+    protected boolean isUnchanged(T stored, T incoming) {
+        return false;
+    }
+
+    /**
+     * @return True when saving the entity also saves related rows, which the single-table UPSERT
+     * statement cannot write. Such entities always take the portable upsert path.
+     */
+    protected boolean hasCascades(T entity) {
+        return false;
+    }
+
+    /**
+     * Binds a chunk of entities to the dialect's UPSERT statement. The statement must return,
+     * for every row it inserted or updated, the natural key, the ID and whether the row was inserted.
+     */
+    protected void mapForUpsert(List<T> entities, PreparedStatement ps) throws SQLException {
+        throw new RuntimeException("Upsert mapping not defined.");
+    }
+
+    /**
+     * @return The name of the column holding the @Id, used to ask the driver for generated keys.
+     */
+    protected String getIdColumn() {
+        return "ID";
+    }
+
     protected void postSave(T entity, long id) { }
 
+    /**
+     * Called by warmUp with the FIND_BY_ID result metadata so column positions can be cached before the first query.
+     */
+    protected void primeColumnIndexes(ResultSetMetaData metaData) throws SQLException { }
+
     abstract T extractEntityFromResultSet(ResultSet rs) throws SQLException;
     abstract void mapForSave(T entity, PreparedStatement ps) throws SQLException;
 
@@ -0,0 +1,11 @@
+package com.neutrinosys.peopledb.repository;
+
+/**
+ * Reads and writes an entity's @Id. The annotation processor generates an {@code <Entity>_IdAccessor}
+ * for entities whose @Id field has a getter and a setter.
+ */
+public interface IdAccessor<T> {
+    Long getId(T entity);
+
+    void setId(T entity, Long id);
+}
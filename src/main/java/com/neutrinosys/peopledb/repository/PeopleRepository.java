@@ -1,18 +1,33 @@
 package com.neutrinosys.peopledb.repository;
 
 import com.neutrinosys.peopledb.annotation.SQL;
+import com.neutrinosys.peopledb.cdc.ChangeFeed;
+import com.neutrinosys.peopledb.dialect.Dialect;
+import com.neutrinosys.peopledb.exception.DataException;
 import com.neutrinosys.peopledb.model.Address;
 import com.neutrinosys.peopledb.model.CrudOperation;
 import com.neutrinosys.peopledb.model.Person;
+import com.neutrinosys.peopledb.model.PersonGrouping;
 import com.neutrinosys.peopledb.model.Region;
+import com.neutrinosys.peopledb.model.SalaryStats;
+import com.neutrinosys.peopledb.routing.ConnectionRouter;
+import com.neutrinosys.peopledb.search.PersonSearchIndex;
 
 import java.math.BigDecimal;
 import java.sql.*;
-import java.time.ZoneId;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
 import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.OptionalLong;
+
+import static java.util.stream.Collectors.joining;
 
 public class PeopleRepository extends CrudRepository<Person> {
     private AddressRepository addressRepository = null;
@@ -22,8 +37,8 @@ public class PeopleRepository extends CrudRepository<Person> {
             VALUES(?, ?, ?, ?, ?, ?, ?, ?)""";
     public static final String FIND_BY_ID_SQL = """
             SELECT
-            PARENT.ID AS PARENT_ID, PARENT.FIRST_NAME AS PARENT_FIRST_NAME, PARENT.LAST_NAME AS PARENT_LAST_NAME, PARENT.DOB AS PARENT_DOB, PARENT.SALARY AS PARENT_SALARY, PARENT.EMAIL AS PARENT_EMAIL,
-            CHILD.ID AS CHILD_ID, CHILD.FIRST_NAME AS CHILD_FIRST_NAME, CHILD.LAST_NAME AS CHILD_LAST_NAME, CHILD.DOB AS CHILD_DOB, CHILD.SALARY AS CHILD_SALARY, CHILD.EMAIL AS CHILD_EMAIL,
+            PARENT.ID AS PARENT_ID, PARENT.FIRST_NAME AS PARENT_FIRST_NAME, PARENT.LAST_NAME AS PARENT_LAST_NAME, PARENT.DOB AS PARENT_DOB, PARENT.SALARY AS PARENT_SALARY, PARENT.EMAIL AS PARENT_EMAIL, PARENT.VERSION AS PARENT_VERSION,
+            CHILD.ID AS CHILD_ID, CHILD.FIRST_NAME AS CHILD_FIRST_NAME, CHILD.LAST_NAME AS CHILD_LAST_NAME, CHILD.DOB AS CHILD_DOB, CHILD.SALARY AS CHILD_SALARY, CHILD.EMAIL AS CHILD_EMAIL, CHILD.VERSION AS CHILD_VERSION,
             HOME.ID AS HOME_ID, HOME.STREET_ADDRESS AS HOME_STREET_ADDRESS, HOME.ADDRESS2 AS HOME_ADDRESS2, HOME.CITY AS HOME_CITY, HOME.STATE AS HOME_STATE, HOME.POSTCODE AS HOME_POSTCODE, HOME.COUNTY AS HOME_COUNTY, HOME.REGION AS HOME_REGION, HOME.COUNTRY AS HOME_COUNTRY,
             BIZ.ID AS BIZ_ID, BIZ.STREET_ADDRESS AS BIZ_STREET_ADDRESS, BIZ.ADDRESS2 AS BIZ_ADDRESS2, BIZ.CITY AS BIZ_CITY, BIZ.STATE AS BIZ_STATE, BIZ.POSTCODE AS BIZ_POSTCODE, BIZ.COUNTY AS BIZ_COUNTY, BIZ.REGION AS BIZ_REGION, BIZ.COUNTRY AS BIZ_COUNTRY
             FROM PEOPLE AS PARENT
@@ -34,20 +49,97 @@ public class PeopleRepository extends CrudRepository<Person> {
             """;
     public static final String FIND_ALL_SQL = """
     SELECT 
-    PARENT.ID AS PARENT_ID, PARENT.FIRST_NAME AS PARENT_FIRST_NAME, PARENT.LAST_NAME AS PARENT_LAST_NAME, PARENT.DOB AS PARENT_DOB, PARENT.SALARY AS PARENT_SALARY, PARENT.EMAIL AS PARENT_EMAIL 
+    PARENT.ID AS PARENT_ID, PARENT.FIRST_NAME AS PARENT_FIRST_NAME, PARENT.LAST_NAME AS PARENT_LAST_NAME, PARENT.DOB AS PARENT_DOB, PARENT.SALARY AS PARENT_SALARY, PARENT.EMAIL AS PARENT_EMAIL, PARENT.VERSION AS PARENT_VERSION
     FROM PEOPLE AS PARENT
     FETCH FIRST 100 ROWS ONLY
     """;
+    public static final String FIND_BY_IDS_SQL = """
+            SELECT
+            PARENT.ID AS PARENT_ID, PARENT.FIRST_NAME AS PARENT_FIRST_NAME, PARENT.LAST_NAME AS PARENT_LAST_NAME, PARENT.DOB AS PARENT_DOB, PARENT.SALARY AS PARENT_SALARY, PARENT.EMAIL AS PARENT_EMAIL, PARENT.VERSION AS PARENT_VERSION
+            FROM PEOPLE AS PARENT
+            WHERE PARENT.ID IN (:ids)
+            """;
+    public static final String FIND_BY_EMAILS_SQL = """
+            SELECT
+            PARENT.ID AS PARENT_ID, PARENT.FIRST_NAME AS PARENT_FIRST_NAME, PARENT.LAST_NAME AS PARENT_LAST_NAME, PARENT.DOB AS PARENT_DOB, PARENT.SALARY AS PARENT_SALARY, PARENT.EMAIL AS PARENT_EMAIL, PARENT.VERSION AS PARENT_VERSION
+            FROM PEOPLE AS PARENT
+            WHERE PARENT.EMAIL IN (:keys)
+            """;
+    /**
+     * Requires a unique constraint on PEOPLE.EMAIL. Rows whose values already match are
+     * neither updated nor returned.
+     */
+    public static final String UPSERT_BY_EMAIL_POSTGRES_SQL = """
+            INSERT INTO PEOPLE (FIRST_NAME, LAST_NAME, DOB, SALARY, EMAIL)
+            SELECT * FROM UNNEST(?::varchar[], ?::varchar[], ?::timestamp[], ?::numeric[], ?::varchar[])
+            ON CONFLICT (EMAIL) DO UPDATE
+            SET FIRST_NAME = EXCLUDED.FIRST_NAME, LAST_NAME = EXCLUDED.LAST_NAME, DOB = EXCLUDED.DOB, SALARY = EXCLUDED.SALARY,
+            VERSION = PEOPLE.VERSION + 1
+            WHERE (PEOPLE.FIRST_NAME, PEOPLE.LAST_NAME, PEOPLE.DOB, PEOPLE.SALARY)
+            IS DISTINCT FROM (EXCLUDED.FIRST_NAME, EXCLUDED.LAST_NAME, EXCLUDED.DOB, EXCLUDED.SALARY)
+            RETURNING EMAIL, ID, (xmax = 0) AS INSERTED, VERSION
+            """;
     public static final String SELECT_COUNT_SQL = "SELECT COUNT(*) FROM PEOPLE";
-    public static final String DELETE_SQL = "DELETE FROM PEOPLE WHERE ID=?";
+    public static final String DELETE_SQL = "DELETE FROM PEOPLE WHERE ID=? AND VERSION=?";
     public static final String DELETE_IN_SQL = "DELETE FROM PEOPLE WHERE ID IN (:ids)";
-    public static final String UPDATE_SQL = "UPDATE PEOPLE SET FIRST_NAME=?, LAST_NAME=?, DOB=?, SALARY=? WHERE ID=?";
+    public static final String DELETE_ANY_SQL = "DELETE FROM PEOPLE WHERE ID = ANY(?)";
+    public static final String UPDATE_SQL = "UPDATE PEOPLE SET FIRST_NAME=?, LAST_NAME=?, DOB=?, SALARY=?, VERSION=VERSION+1 WHERE ID=? AND VERSION=?";
+    public static final String COUNT_BY_LAST_NAME_SQL = "SELECT COUNT(*) FROM PEOPLE WHERE LAST_NAME=?";
+    public static final String COUNT_BY_SALARY_SQL = "SELECT COUNT(*) FROM PEOPLE WHERE SALARY BETWEEN ? AND ?";
+    public static final String COUNT_BY_DOB_SQL = "SELECT COUNT(*) FROM PEOPLE WHERE DOB >= ? AND DOB < ?";
+    public static final String SALARY_STATS_SQL = """
+            SELECT COUNT(*), SUM(SALARY), AVG(SALARY), MIN(SALARY), MAX(SALARY)
+            FROM PEOPLE
+            """;
+    public static final String GROUPED_SALARY_STATS_SQL = """
+            SELECT :group AS GROUP_KEY, COUNT(*), SUM(P.SALARY), AVG(P.SALARY), MIN(P.SALARY), MAX(P.SALARY)
+            FROM PEOPLE AS P
+            LEFT OUTER JOIN ADDRESSES AS HOME ON P.HOME_ADDRESS = HOME.ID
+            GROUP BY :group
+            ORDER BY :group
+            """;
+    public static final String SEARCH_TRIGRAM_SQL = """
+            SELECT ID FROM PEOPLE
+            WHERE ? <% (COALESCE(FIRST_NAME, '') || ' ' || COALESCE(LAST_NAME, '') || ' ' || COALESCE(EMAIL, ''))
+            ORDER BY word_similarity(?, COALESCE(FIRST_NAME, '') || ' ' || COALESCE(LAST_NAME, '') || ' ' || COALESCE(EMAIL, '')) DESC, ID
+            LIMIT ?
+            """;
+    public static final String SEARCH_PREFIX_SQL = """
+            SELECT ID FROM PEOPLE
+            WHERE :words
+            ORDER BY ID
+            LIMIT ?
+            """;
+    public static final String SEARCH_PREFIX_WORD_SQL =
+            "(LOWER(FIRST_NAME) LIKE ? ESCAPE '\\' OR LOWER(LAST_NAME) LIKE ? ESCAPE '\\' OR LOWER(EMAIL) LIKE ? ESCAPE '\\')";
+    public static final String TRIGRAM_EXTENSION_SQL = "SELECT COUNT(*) FROM pg_extension WHERE extname = 'pg_trgm'";
+    private static final int MAX_SEARCH_FETCH = Integer.MAX_VALUE / 2;
 
     private Map<String, Integer> aliasColIdxMap = new HashMap<>();
+    private PersonSearchIndex searchIndex;
+    private Boolean trigramAvailable;
 
     public PeopleRepository(Connection connection) {
-        super(connection);
-        addressRepository = new AddressRepository(connection);
+        this(new ConnectionRouter(connection));
+    }
+
+    public PeopleRepository(ConnectionRouter router) {
+        super(router);
+        addressRepository = new AddressRepository(router);
+    }
+
+    @Override
+    public void setChangeFeed(ChangeFeed changeFeed) {
+        super.setChangeFeed(changeFeed);
+        addressRepository.setChangeFeed(changeFeed);
+    }
+
+    /**
+     * Answers search() from the given in-memory index instead of the database.
+     * Subscribe the index to this repository's ChangeFeed to keep it current.
+     */
+    public void setSearchIndex(PersonSearchIndex searchIndex) {
+        this.searchIndex = searchIndex;
     }
 
     @Override
@@ -98,11 +190,64 @@ public class PeopleRepository extends CrudRepository<Person> {
         ps.setBigDecimal(4, entity.getSalary());
     }
 
+    @Override
+    @SQL(value = UPSERT_BY_EMAIL_POSTGRES_SQL, operationType = CrudOperation.UPSERT, dialects = Dialect.POSTGRES)
+    protected void mapForUpsert(List<Person> entities, PreparedStatement ps) throws SQLException {
+        int size = entities.size();
+        String[] firstNames = new String[size];
+        String[] lastNames = new String[size];
+        Timestamp[] dobs = new Timestamp[size];
+        BigDecimal[] salaries = new BigDecimal[size];
+        String[] emails = new String[size];
+        for (int i = 0; i < size; i++) {
+            Person person = entities.get(i);
+            firstNames[i] = person.getFirstName();
+            lastNames[i] = person.getLastName();
+            dobs[i] = convertDobToTimestamp(person.getDob());
+            salaries[i] = person.getSalary();
+            emails[i] = person.getEmail();
+        }
+        ps.setArray(1, connection.createArrayOf("varchar", firstNames));
+        ps.setArray(2, connection.createArrayOf("varchar", lastNames));
+        ps.setArray(3, connection.createArrayOf("timestamp", dobs));
+        ps.setArray(4, connection.createArrayOf("numeric", salaries));
+        ps.setArray(5, connection.createArrayOf("varchar", emails));
+    }
+
+    /**
+     * People without an ID are matched on their email address.
+     */
+    @Override
+    protected Object getNaturalKey(Person entity) {
+        return entity.getEmail();
+    }
+
+    /**
+     * Addresses and children are saved with the person, so people that have any are not upserted
+     * with UPSERT_BY_EMAIL_POSTGRES_SQL.
+     */
+    @Override
+    protected boolean hasCascades(Person entity) {
+        return entity.getHomeAddress().isPresent() || entity.getBusinessAddress().isPresent() || !entity.getChildren().isEmpty();
+    }
+
+    @Override
+    protected boolean isUnchanged(Person stored, Person incoming) {
+        return Objects.equals(stored.getFirstName(), incoming.getFirstName()) &&
+                Objects.equals(stored.getLastName(), incoming.getLastName()) &&
+                stored.getDob().isEqual(incoming.getDob()) &&
+                stored.getSalary().compareTo(incoming.getSalary()) == 0;
+    }
+
     @Override
     @SQL(value = FIND_BY_ID_SQL, operationType = CrudOperation.FIND_BY_ID)
     @SQL(value = FIND_ALL_SQL, operationType = CrudOperation.FIND_ALL)
     @SQL(value = SELECT_COUNT_SQL, operationType = CrudOperation.COUNT)
     @SQL(value = DELETE_SQL, operationType = CrudOperation.DELETE_ONE)
+    @SQL(value = DELETE_IN_SQL, operationType = CrudOperation.DELETE_MANY)
+    @SQL(value = DELETE_ANY_SQL, operationType = CrudOperation.DELETE_MANY, dialects = Dialect.POSTGRES)
+    @SQL(value = FIND_BY_IDS_SQL, operationType = CrudOperation.FIND_BY_IDS)
+    @SQL(value = FIND_BY_EMAILS_SQL, operationType = CrudOperation.FIND_BY_NATURAL_KEYS)
     Person extractEntityFromResultSet(ResultSet rs) throws SQLException {
         Person finalParent = null;
         do {
@@ -125,14 +270,243 @@ public class PeopleRepository extends CrudRepository<Person> {
         return finalParent;
     }
 
+    public long countByLastName(String lastName) {
+        return cached("countByLastName", Arrays.asList(lastName), () -> {
+            try {
+                return read(readConnection -> {
+                    try (PreparedStatement ps = readConnection.prepareStatement(COUNT_BY_LAST_NAME_SQL)) {
+                        ps.setString(1, lastName);
+                        return queryForCount(ps);
+                    }
+                });
+            } catch (SQLException e) {
+                throw new DataException("Unable to count people by last name", e);
+            }
+        });
+    }
+
+    public long countBySalaryBetween(BigDecimal low, BigDecimal high) {
+        return cached("countBySalaryBetween", Arrays.asList(low, high), () -> {
+            try {
+                return read(readConnection -> {
+                    try (PreparedStatement ps = readConnection.prepareStatement(COUNT_BY_SALARY_SQL)) {
+                        ps.setBigDecimal(1, low);
+                        ps.setBigDecimal(2, high);
+                        return queryForCount(ps);
+                    }
+                });
+            } catch (SQLException e) {
+                throw new DataException("Unable to count people by salary", e);
+            }
+        });
+    }
+
+    /**
+     * Counts people born in the half-open range [from, to).
+     */
+    public long countByDobBetween(ZonedDateTime from, ZonedDateTime to) {
+        return cached("countByDobBetween", Arrays.asList(from, to), () -> {
+            try {
+                return read(readConnection -> {
+                    try (PreparedStatement ps = readConnection.prepareStatement(COUNT_BY_DOB_SQL)) {
+                        ps.setTimestamp(1, convertDobToTimestamp(from));
+                        ps.setTimestamp(2, convertDobToTimestamp(to));
+                        return queryForCount(ps);
+                    }
+                });
+            } catch (SQLException e) {
+                throw new DataException("Unable to count people by date of birth", e);
+            }
+        });
+    }
+
+    /**
+     * Estimates the number of people from the database's planner statistics instead of counting rows:
+     * pg_class.reltuples on Postgres and ROW_COUNT_ESTIMATE on H2. Falls back to count() when the
+     * dialect has no estimate or the table has never been analyzed.
+     */
+    public long approximateCount() {
+        return cached("approximateCount", List.of(), () -> {
+            try {
+                OptionalLong estimate = read(readConnection -> dialect.estimateRowCount(readConnection, "PEOPLE"));
+                return estimate.isPresent() ? estimate.getAsLong() : count();
+            } catch (SQLException e) {
+                throw new DataException("Unable to estimate the number of people", e);
+            }
+        });
+    }
+
+    public SalaryStats getSalaryStats() {
+        return cached("getSalaryStats", List.of(), () -> {
+            try {
+                return read(readConnection -> {
+                    try (PreparedStatement ps = readConnection.prepareStatement(SALARY_STATS_SQL);
+                         ResultSet rs = ps.executeQuery()) {
+                        rs.next();
+                        return extractSalaryStats(null, rs, 1);
+                    }
+                });
+            } catch (SQLException e) {
+                throw new DataException("Unable to aggregate salaries", e);
+            }
+        });
+    }
+
+    public List<SalaryStats> getSalaryStatsGroupedBy(PersonGrouping grouping) {
+        return cached("getSalaryStatsGroupedBy", List.of(grouping), () -> {
+            try {
+                return read(readConnection -> {
+                    List<SalaryStats> stats = new ArrayList<>();
+                    try (PreparedStatement ps = readConnection.prepareStatement(GROUPED_SALARY_STATS_SQL.replace(":group", getGroupingExpression(grouping)));
+                         ResultSet rs = ps.executeQuery()) {
+                        while (rs.next()) {
+                            stats.add(extractSalaryStats(rs.getString("GROUP_KEY"), rs, 2));
+                        }
+                    }
+                    return List.copyOf(stats);
+                });
+            } catch (SQLException e) {
+                throw new DataException("Unable to aggregate salaries by " + grouping, e);
+            }
+        });
+    }
+
+    /**
+     * Finds people whose names or email match the query, best match first. The query must not be blank.
+     * <p>
+     * IDs come from the search index when one is set. The index can hold writes that were rolled back,
+     * so its hits are loaded and re-checked with PersonSearchIndex.matches, and more hits are asked for
+     * until limit people pass or the index runs out.
+     * <p>
+     * Otherwise Postgres ranks by pg_trgm word similarity when the extension is installed, and every
+     * other database requires every word of the query to be a prefix of the first name, last name or
+     * email, in ID order. For pg_trgm to use an index, create
+     * <pre>
+     * CREATE INDEX PEOPLE_SEARCH_TRGM ON PEOPLE USING GIN (
+     *     (COALESCE(FIRST_NAME, '') || ' ' || COALESCE(LAST_NAME, '') || ' ' || COALESCE(EMAIL, '')) gin_trgm_ops)
+     * </pre>
+     * The prefix match compares LOWER(column), which a plain index on the column cannot serve. On
+     * Postgres without pg_trgm, expression indexes make it an index scan:
+     * <pre>
+     * CREATE INDEX PEOPLE_FIRST_NAME_LOWER ON PEOPLE (LOWER(FIRST_NAME) text_pattern_ops);
+     * CREATE INDEX PEOPLE_LAST_NAME_LOWER ON PEOPLE (LOWER(LAST_NAME) text_pattern_ops);
+     * CREATE INDEX PEOPLE_EMAIL_LOWER ON PEOPLE (LOWER(EMAIL) text_pattern_ops);
+     * </pre>
+     * H2 has no expression indexes and scans PEOPLE; set a search index for large tables there.
+     */
+    public List<Person> search(String query, int limit) {
+        if (query == null || query.isBlank()) {
+            throw new IllegalArgumentException("Search query must not be empty");
+        }
+        if (searchIndex != null) {
+            return searchWithIndex(query, limit);
+        }
+        List<Long> ids;
+        try {
+            ids = read(readConnection -> searchInDatabase(readConnection, query, limit));
+        } catch (SQLException e) {
+            throw new DataException("Unable to search people", e);
+        }
+        return loadInOrder(ids);
+    }
+
+    private List<Person> searchWithIndex(String query, int limit) {
+        int fetch = limit;
+        while (true) {
+            List<Long> ids = searchIndex.search(query, fetch);
+            List<Person> found = loadInOrder(ids).stream()
+                    .filter(p -> PersonSearchIndex.matches(query, p.getFirstName(), p.getLastName(), p.getEmail()))
+                    .limit(limit)
+                    .toList();
+            if (found.size() == limit || ids.size() < fetch || fetch == MAX_SEARCH_FETCH) return found;
+            fetch = (int) Math.min(2L * fetch, MAX_SEARCH_FETCH);
+        }
+    }
+
+    private List<Person> loadInOrder(List<Long> ids) {
+        Map<Long, Person> peopleById = new HashMap<>();
+        for (Person person : findAllById(ids)) {
+            peopleById.put(person.getId(), person);
+        }
+        return ids.stream().map(peopleById::get).filter(Objects::nonNull).toList();
+    }
+
+    private List<Long> searchInDatabase(Connection readConnection, String query, int limit) throws SQLException {
+        PreparedStatement ps;
+        if (isTrigramAvailable(readConnection)) {
+            ps = readConnection.prepareStatement(SEARCH_TRIGRAM_SQL);
+            ps.setString(1, query);
+            ps.setString(2, query);
+            ps.setInt(3, limit);
+        } else {
+            String[] words = query.trim().toLowerCase().split("\\s+");
+            String where = Arrays.stream(words).map(word -> SEARCH_PREFIX_WORD_SQL).collect(joining(" AND "));
+            ps = readConnection.prepareStatement(SEARCH_PREFIX_SQL.replace(":words", where));
+            int paramIdx = 1;
+            for (String word : words) {
+                String pattern = word.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_") + "%";
+                ps.setString(paramIdx++, pattern);
+                ps.setString(paramIdx++, pattern);
+                ps.setString(paramIdx++, pattern);
+            }
+            ps.setInt(paramIdx, limit);
+        }
+        List<Long> ids = new ArrayList<>();
+        try (ps; ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                ids.add(rs.getLong(1));
+            }
+        }
+        return ids;
+    }
+
+    private boolean isTrigramAvailable(Connection readConnection) throws SQLException {
+        if (trigramAvailable == null) {
+            if (dialect == Dialect.POSTGRES) {
+                try (PreparedStatement ps = readConnection.prepareStatement(TRIGRAM_EXTENSION_SQL)) {
+                    trigramAvailable = queryForCount(ps) > 0;
+                }
+            } else {
+                trigramAvailable = false;
+            }
+        }
+        return trigramAvailable;
+    }
+
+    private String getGroupingExpression(PersonGrouping grouping) {
+        return switch (grouping) {
+            case LAST_NAME -> "P.LAST_NAME";
+            case BIRTH_YEAR -> "CAST(EXTRACT(YEAR FROM P.DOB) AS INT)";
+            case HOME_REGION -> "HOME.REGION";
+            case HOME_STATE -> "HOME.STATE";
+        };
+    }
+
+    private SalaryStats extractSalaryStats(String groupKey, ResultSet rs, int firstColIdx) throws SQLException {
+        return new SalaryStats(groupKey,
+                rs.getLong(firstColIdx),
+                rs.getBigDecimal(firstColIdx + 1),
+                rs.getBigDecimal(firstColIdx + 2),
+                rs.getBigDecimal(firstColIdx + 3),
+                rs.getBigDecimal(firstColIdx + 4));
+    }
+
+    private long queryForCount(PreparedStatement ps) throws SQLException {
+        try (ResultSet rs = ps.executeQuery()) {
+            return rs.next() ? rs.getLong(1) : 0;
+        }
+    }
+
     private Optional<Person> extractPerson(ResultSet rs, String aliasPrefix) throws SQLException {
         Long personId = getValueByAlias(aliasPrefix + "ID", rs, Long.class);
         if (personId == null) { return Optional.empty(); }
         String firstName = getValueByAlias(aliasPrefix + "FIRST_NAME", rs, String.class);
         String lastName = getValueByAlias(aliasPrefix + "LAST_NAME", rs, String.class);
-        ZonedDateTime dob = ZonedDateTime.of(getValueByAlias(aliasPrefix + "DOB", rs, Timestamp.class).toLocalDateTime(), ZoneId.of("+0"));
+        LocalDateTime dob = getValueByAlias(aliasPrefix + "DOB", rs, Timestamp.class).toLocalDateTime();
         BigDecimal salary = getValueByAlias(aliasPrefix + "SALARY", rs, BigDecimal.class);
-        Person person = new Person(personId, firstName, lastName, dob, salary);
+        Person person = new Person(personId, firstName, lastName, dob.toEpochSecond(ZoneOffset.UTC), dob.getNano(), salary);
+        person.setEmail(getValueByAlias(aliasPrefix + "EMAIL", rs, String.class));
+        person.setVersion(getLongByAlias(aliasPrefix + "VERSION", rs, 0L));
         return Optional.of(person);
     }
 
@@ -151,15 +525,34 @@ public class PeopleRepository extends CrudRepository<Person> {
         return address;
     }
 
+    @Override
+    protected void primeColumnIndexes(ResultSetMetaData metaData) throws SQLException {
+        for (int colIdx = 1; colIdx <= metaData.getColumnCount(); colIdx++) {
+            aliasColIdxMap.put(metaData.getColumnLabel(colIdx), colIdx);
+        }
+    }
+
     private <T> T getValueByAlias(String alias, ResultSet rs, Class<T> clazz) throws SQLException {
         int columnCount = rs.getMetaData().getColumnCount();
         int foundIdx = getIndexForAlias(alias, rs, columnCount);
         return foundIdx == 0 ? null : (T) rs.getObject(foundIdx);
     }
 
+    /**
+     * Reads the column with getLong, so any integer column type works, and answers defaultValue when
+     * the column is missing or NULL.
+     */
+    private long getLongByAlias(String alias, ResultSet rs, long defaultValue) throws SQLException {
+        int foundIdx = getIndexForAlias(alias, rs, rs.getMetaData().getColumnCount());
+        if (foundIdx == 0) return defaultValue;
+        long value = rs.getLong(foundIdx);
+        return rs.wasNull() ? defaultValue : value;
+    }
+
     private int getIndexForAlias(String alias, ResultSet rs, int columnCount) throws SQLException {
         Integer foundIdx = aliasColIdxMap.getOrDefault(alias, 0);
-        if (foundIdx == 0) {
+        if (foundIdx == 0 || foundIdx > columnCount) {
+            foundIdx = 0;
             for (int colIdx = 1; colIdx<= columnCount; colIdx++) {
                 if (alias.equals(rs.getMetaData().getColumnLabel(colIdx))) {
                     foundIdx = colIdx;
@@ -173,6 +566,6 @@ public class PeopleRepository extends CrudRepository<Person> {
 
 
     private Timestamp convertDobToTimestamp(ZonedDateTime dob) {
-        return Timestamp.valueOf(dob.withZoneSameInstant(ZoneId.of("+0")).toLocalDateTime());
+        return Timestamp.valueOf(dob.withZoneSameInstant(Person.UTC).toLocalDateTime());
     }
 }
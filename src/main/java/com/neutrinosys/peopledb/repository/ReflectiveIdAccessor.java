@@ -0,0 +1,38 @@
+package com.neutrinosys.peopledb.repository;
+
+import com.neutrinosys.peopledb.annotation.Id;
+
+import java.lang.reflect.Field;
+import java.util.Arrays;
+
+/**
+ * Used for entities without a generated IdAccessor. Looks the @Id field up once per entity class.
+ */
+class ReflectiveIdAccessor<T> implements IdAccessor<T> {
+    private final Field idField;
+
+    ReflectiveIdAccessor(Class<?> entityClass) {
+        idField = Arrays.stream(entityClass.getDeclaredFields())
+                .filter(f -> f.isAnnotationPresent(Id.class))
+                .findFirst().orElseThrow(() -> new RuntimeException("No ID annotated field found."));
+        idField.setAccessible(true);
+    }
+
+    @Override
+    public Long getId(T entity) {
+        try {
+            return (Long) idField.get(entity);
+        } catch (IllegalAccessException e) {
+            throw new RuntimeException("Unable to get ID field value.", e);
+        }
+    }
+
+    @Override
+    public void setId(T entity, Long id) {
+        try {
+            idField.set(entity, id);
+        } catch (IllegalAccessException e) {
+            throw new RuntimeException("Unable to set ID field value.");
+        }
+    }
+}
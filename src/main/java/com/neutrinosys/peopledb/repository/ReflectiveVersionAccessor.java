@@ -0,0 +1,49 @@
+package com.neutrinosys.peopledb.repository;
+
+import com.neutrinosys.peopledb.annotation.Version;
+
+import java.lang.reflect.Field;
+import java.util.Arrays;
+
+/**
+ * Used for entities without a generated VersionAccessor. Looks the @Version field up once per entity class;
+ * classes without one get an accessor for which isVersioned() is false.
+ */
+class ReflectiveVersionAccessor<T> implements VersionAccessor<T> {
+    private final Field versionField;
+
+    ReflectiveVersionAccessor(Class<?> entityClass) {
+        versionField = Arrays.stream(entityClass.getDeclaredFields())
+                .filter(f -> f.isAnnotationPresent(Version.class))
+                .findFirst().orElse(null);
+        if (versionField != null) {
+            if (versionField.getType() != long.class) {
+                throw new RuntimeException("@Version field " + versionField.getName() + " must be a long.");
+            }
+            versionField.setAccessible(true);
+        }
+    }
+
+    @Override
+    public boolean isVersioned() {
+        return versionField != null;
+    }
+
+    @Override
+    public long getVersion(T entity) {
+        try {
+            return versionField.getLong(entity);
+        } catch (IllegalAccessException e) {
+            throw new RuntimeException("Unable to get version field value.", e);
+        }
+    }
+
+    @Override
+    public void setVersion(T entity, long version) {
+        try {
+            versionField.setLong(entity, version);
+        } catch (IllegalAccessException e) {
+            throw new RuntimeException("Unable to set version field value.", e);
+        }
+    }
+}
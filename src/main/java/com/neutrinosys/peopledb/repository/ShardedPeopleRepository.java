@@ -0,0 +1,223 @@
+package com.neutrinosys.peopledb.repository;
+
+import com.neutrinosys.peopledb.exception.DataException;
+import com.neutrinosys.peopledb.exception.UpsertConflictException;
+import com.neutrinosys.peopledb.exception.VersionConflictException;
+import com.neutrinosys.peopledb.model.Person;
+import com.neutrinosys.peopledb.model.PersonGrouping;
+import com.neutrinosys.peopledb.model.SalaryStats;
+import com.neutrinosys.peopledb.model.UpsertResult;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BinaryOperator;
+import java.util.function.Function;
+
+/**
+ * Spreads people across several databases, each with its own PeopleRepository.
+ * <p>
+ * A new person goes to the shard chosen by hashing its shard key (round-robin when the key is null)
+ * and is saved there together with its addresses and children, so a person's graph never spans shards.
+ * After that a person is found by ID: the shard is ID modulo the number of shards. For this to hold,
+ * each shard's ID columns must be allocated with a stride, shard i starting at i (shard 0 at N) and
+ * incrementing by N:
+ * <pre>
+ * H2:       ID BIGINT AUTO_INCREMENT(start, N) PRIMARY KEY
+ * Postgres: ID BIGINT GENERATED BY DEFAULT AS IDENTITY (START WITH start INCREMENT BY N) PRIMARY KEY
+ * </pre>
+ * save() verifies this and throws when a shard hands out an ID that belongs to another shard.
+ * <p>
+ * count, findAll and the aggregations are scattered to all shards in parallel and merged.
+ * Each shard is only used by one thread at a time, so this class is not meant for concurrent callers.
+ */
+public class ShardedPeopleRepository implements AutoCloseable {
+    private final List<PeopleRepository> shards;
+    private final Function<Person, Object> shardKey;
+    private final ExecutorService executor;
+    private final AtomicInteger nextShard = new AtomicInteger();
+
+    public ShardedPeopleRepository(List<PeopleRepository> shards) {
+        this(shards, Person::getEmail);
+    }
+
+    public ShardedPeopleRepository(List<PeopleRepository> shards, Function<Person, Object> shardKey) {
+        this.shards = List.copyOf(shards);
+        this.shardKey = shardKey;
+        this.executor = Executors.newFixedThreadPool(shards.size());
+    }
+
+    public Person save(Person person) {
+        int shardIdx = shardForNewPerson(person);
+        Person saved = shards.get(shardIdx).save(person);
+        if (saved.getId() != null && shardForId(saved.getId()) != shardIdx) {
+            throw new DataException("Shard %d allocated ID %d, which belongs to shard %d; check its ID stride"
+                    .formatted(shardIdx, saved.getId(), shardForId(saved.getId())));
+        }
+        return saved;
+    }
+
+    public Optional<Person> findById(Long id) {
+        return shards.get(shardForId(id)).findById(id);
+    }
+
+    public void update(Person person) {
+        shards.get(shardForId(person.getId())).update(person);
+    }
+
+    public void delete(Person person) {
+        shards.get(shardForId(person.getId())).delete(person);
+    }
+
+    public void delete(Person... people) {
+        Map<Integer, List<Person>> peopleByShard = new LinkedHashMap<>();
+        Arrays.stream(people).forEach(p -> peopleByShard.computeIfAbsent(shardForId(p.getId()), k -> new ArrayList<>()).add(p));
+        List<Object> conflicts = new ArrayList<>();
+        peopleByShard.forEach((shardIdx, shardPeople) -> {
+            try {
+                shards.get(shardIdx).delete(shardPeople.toArray(Person[]::new));
+            } catch (VersionConflictException e) {
+                conflicts.addAll(e.getConflicts());
+            }
+        });
+        if (!conflicts.isEmpty()) {
+            throw new VersionConflictException(conflicts.size() + " of " + people.length + " people were changed or deleted concurrently", conflicts);
+        }
+    }
+
+    /**
+     * People with an ID are upserted on their shard; people without one go to the shard of their shard key.
+     * Version conflicts from every shard are reported together in one UpsertConflictException, whose
+     * result counts the writes applied on all shards.
+     */
+    public UpsertResult upsertAll(Collection<Person> people) {
+        Map<Integer, List<Person>> peopleByShard = new LinkedHashMap<>();
+        for (Person person : people) {
+            int shardIdx = person.getId() != null ? shardForId(person.getId()) : shardForNewPerson(person);
+            peopleByShard.computeIfAbsent(shardIdx, k -> new ArrayList<>()).add(person);
+        }
+        List<ShardUpsert> shardUpserts = scatter(peopleByShard.keySet().stream().toList(), shardIdx -> {
+            try {
+                return new ShardUpsert(shards.get(shardIdx).upsertAll(peopleByShard.get(shardIdx)), List.of());
+            } catch (UpsertConflictException e) {
+                return new ShardUpsert(e.getResult(), e.getConflicts());
+            }
+        });
+        UpsertResult result = new UpsertResult(0, 0, 0);
+        List<Object> conflicts = new ArrayList<>();
+        for (ShardUpsert shardUpsert : shardUpserts) {
+            result = result.plus(shardUpsert.result());
+            conflicts.addAll(shardUpsert.conflicts());
+        }
+        if (!conflicts.isEmpty()) {
+            throw new UpsertConflictException(conflicts.size() + " updates found their person changed or deleted concurrently", conflicts, result);
+        }
+        return result;
+    }
+
+    public long count() {
+        return sum(scatter(PeopleRepository::count));
+    }
+
+    public long countByLastName(String lastName) {
+        return sum(scatter(shard -> shard.countByLastName(lastName)));
+    }
+
+    /**
+     * @return The people returned by each shard's findAll, so at most 100 per shard.
+     */
+    public List<Person> findAll() {
+        List<Person> people = new ArrayList<>();
+        scatter(PeopleRepository::findAll).forEach(people::addAll);
+        return people;
+    }
+
+    public SalaryStats getSalaryStats() {
+        return scatter(PeopleRepository::getSalaryStats).stream()
+                .reduce(ShardedPeopleRepository::merge)
+                .orElseThrow();
+    }
+
+    public List<SalaryStats> getSalaryStatsGroupedBy(PersonGrouping grouping) {
+        Map<String, SalaryStats> statsByGroup = new LinkedHashMap<>();
+        scatter(shard -> shard.getSalaryStatsGroupedBy(grouping)).stream()
+                .flatMap(List::stream)
+                .forEach(stats -> statsByGroup.merge(stats.groupKey(), stats, ShardedPeopleRepository::merge));
+        List<SalaryStats> merged = new ArrayList<>(statsByGroup.values());
+        merged.sort(Comparator.comparing(SalaryStats::groupKey, Comparator.nullsLast(Comparator.naturalOrder())));
+        return merged;
+    }
+
+    public int getShardCount() {
+        return shards.size();
+    }
+
+    public int shardForId(long id) {
+        return (int) Math.floorMod(id, (long) shards.size());
+    }
+
+    @Override
+    public void close() {
+        executor.shutdown();
+    }
+
+    private int shardForNewPerson(Person person) {
+        Object key = shardKey.apply(person);
+        int hash = key == null ? nextShard.getAndIncrement() : key.hashCode();
+        return Math.floorMod(hash, shards.size());
+    }
+
+    private <R> List<R> scatter(Function<PeopleRepository, R> query) {
+        List<Integer> allShards = new ArrayList<>();
+        for (int i = 0; i < shards.size(); i++) {
+            allShards.add(i);
+        }
+        return scatter(allShards, shardIdx -> query.apply(shards.get(shardIdx)));
+    }
+
+    private <R> List<R> scatter(List<Integer> shardIdxs, Function<Integer, R> query) {
+        List<CompletableFuture<R>> futures = shardIdxs.stream()
+                .map(shardIdx -> CompletableFuture.supplyAsync(() -> query.apply(shardIdx), executor))
+                .toList();
+        try {
+            return futures.stream().map(CompletableFuture::join).toList();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) throw cause;
+            throw new DataException("Shard query failed", e.getCause());
+        }
+    }
+
+    private static long sum(List<Long> counts) {
+        return counts.stream().mapToLong(Long::longValue).sum();
+    }
+
+    private static SalaryStats merge(SalaryStats left, SalaryStats right) {
+        long count = left.count() + right.count();
+        BigDecimal sum = combine(left.sum(), right.sum(), BigDecimal::add);
+        BigDecimal avg = sum == null || count == 0 ? null : sum.divide(BigDecimal.valueOf(count), MathContext.DECIMAL64);
+        return new SalaryStats(left.groupKey(), count, sum, avg,
+                combine(left.min(), right.min(), BigDecimal::min),
+                combine(left.max(), right.max(), BigDecimal::max));
+    }
+
+    private static BigDecimal combine(BigDecimal left, BigDecimal right, BinaryOperator<BigDecimal> operator) {
+        if (left == null) return right;
+        if (right == null) return left;
+        return operator.apply(left, right);
+    }
+
+    private record ShardUpsert(UpsertResult result, List<?> conflicts) {
+    }
+}
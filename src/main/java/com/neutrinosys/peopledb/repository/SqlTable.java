@@ -0,0 +1,15 @@
+package com.neutrinosys.peopledb.repository;
+
+import com.neutrinosys.peopledb.dialect.Dialect;
+import com.neutrinosys.peopledb.model.CrudOperation;
+
+/**
+ * Implemented by the {@code <Repository>_Sql} classes the annotation processor generates from @SQL/@MultiSQL.
+ */
+public interface SqlTable {
+    /**
+     * @return The SQL for the operation, preferring a variant for the given dialect,
+     * or null when the repository has no @SQL for it.
+     */
+    String getSql(CrudOperation operationType, Dialect dialect);
+}
@@ -0,0 +1,13 @@
+package com.neutrinosys.peopledb.repository;
+
+/**
+ * Reads and writes an entity's @Version. The annotation processor generates an {@code <Entity>_VersionAccessor}
+ * for entities whose @Version field has a getter and a setter.
+ */
+public interface VersionAccessor<T> {
+    boolean isVersioned();
+
+    long getVersion(T entity);
+
+    void setVersion(T entity, long version);
+}
@@ -0,0 +1,10 @@
+package com.neutrinosys.peopledb.routing;
+
+/**
+ * How ConnectionRouter spreads reads over healthy replicas. There is no load-based strategy: a router
+ * and its repositories are used from one thread at a time, so a replica never has more than one read
+ * in flight from it. Spread load by giving each thread its own router and repositories.
+ */
+public enum BalancingStrategy {
+    ROUND_ROBIN
+}
@@ -0,0 +1,178 @@
+package com.neutrinosys.peopledb.routing;
+
+import com.neutrinosys.peopledb.dialect.Dialect;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Decides which connection each repository operation runs on. Writes always go to the primary.
+ * Reads go to a healthy replica picked by the BalancingStrategy, or to the primary when there is none.
+ * <p>
+ * Once a write has been made in a transaction on the primary (auto-commit off), reads stick to the
+ * primary so they see that write. Stickiness ends with commit() or rollback() here, or, when the caller
+ * ends the transaction on the primary connection directly, on the next read after the dialect reports
+ * no uncommitted writes. On the GENERIC dialect only commit() and rollback() here end it.
+ * <p>
+ * A replica reported unhealthy is skipped for the cooldown period. It is then probed with isValid
+ * before it gets reads again, and its cooldown is restarted if the probe fails. checkReplicas() runs
+ * the same probe on every replica up front.
+ * <p>
+ * Like the repositories it is given to, a router is meant to be used from one thread at a time.
+ */
+public class ConnectionRouter {
+    private static final Duration DEFAULT_COOLDOWN = Duration.ofSeconds(30);
+    private static final int PROBE_TIMEOUT_SECONDS = 1;
+
+    private final Connection primary;
+    private final List<Replica> replicas;
+    private final BalancingStrategy strategy;
+    private final long cooldownNanos;
+    private final AtomicInteger nextReplica = new AtomicInteger();
+    private volatile boolean stickToPrimary;
+    private Dialect dialect;
+
+    public ConnectionRouter(Connection primary) {
+        this(primary, List.of(), BalancingStrategy.ROUND_ROBIN, DEFAULT_COOLDOWN);
+    }
+
+    public ConnectionRouter(Connection primary, List<Connection> replicas, BalancingStrategy strategy) {
+        this(primary, replicas, strategy, DEFAULT_COOLDOWN);
+    }
+
+    public ConnectionRouter(Connection primary, List<Connection> replicas, BalancingStrategy strategy, Duration cooldown) {
+        this.primary = primary;
+        this.replicas = replicas.stream().map(Replica::new).toList();
+        this.strategy = strategy;
+        this.cooldownNanos = cooldown.toNanos();
+    }
+
+    public Connection getPrimary() {
+        return primary;
+    }
+
+    public List<Connection> getReplicas() {
+        return replicas.stream().map(r -> r.connection).toList();
+    }
+
+    /**
+     * Picks the connection for a read. Without replicas this is always the primary, and the dialect
+     * is never asked about uncommitted writes.
+     */
+    public Connection forRead() {
+        if (replicas.isEmpty()) return primary;
+        if (stickToPrimary && primaryHasUncommittedWrites()) return primary;
+        stickToPrimary = false;
+        Replica replica = pickReplica();
+        return replica == null ? primary : replica.connection;
+    }
+
+    /**
+     * Called before every write on the primary.
+     */
+    public void recordWrite() {
+        try {
+            if (!primary.getAutoCommit()) {
+                stickToPrimary = true;
+            }
+        } catch (SQLException e) {
+            stickToPrimary = true;
+        }
+    }
+
+    public void markUnhealthy(Connection connection) {
+        Replica replica = findReplica(connection);
+        if (replica != null) {
+            replica.markUnhealthy(System.nanoTime() + cooldownNanos);
+        }
+    }
+
+    /**
+     * Probes every replica, taking failed ones out of rotation for the cooldown period and putting
+     * recovered ones straight back.
+     * @return The number of healthy replicas.
+     */
+    public int checkReplicas() {
+        int healthy = 0;
+        for (Replica replica : replicas) {
+            if (probe(replica)) {
+                replica.unhealthyUntil = System.nanoTime();
+                replica.needsProbe = false;
+                healthy++;
+            }
+        }
+        return healthy;
+    }
+
+    public void commit() throws SQLException {
+        primary.commit();
+        stickToPrimary = false;
+    }
+
+    public void rollback() throws SQLException {
+        primary.rollback();
+        stickToPrimary = false;
+    }
+
+    private boolean primaryHasUncommittedWrites() {
+        try {
+            if (primary.getAutoCommit()) return false;
+            if (dialect == null) {
+                dialect = Dialect.detect(primary);
+            }
+            return dialect.hasUncommittedWrites(primary);
+        } catch (SQLException e) {
+            return true;
+        }
+    }
+
+    private Replica pickReplica() {
+        int size = replicas.size();
+        int start = Math.floorMod(nextReplica.getAndIncrement(), Math.max(size, 1));
+        for (int i = 0; i < size; i++) {
+            Replica candidate = replicas.get((start + i) % size);
+            if (candidate.unhealthyUntil - System.nanoTime() > 0) continue;
+            if (candidate.needsProbe) {
+                if (!probe(candidate)) continue;
+                candidate.needsProbe = false;
+            }
+            return candidate;
+        }
+        return null;
+    }
+
+    private boolean probe(Replica replica) {
+        try {
+            if (replica.connection.isValid(PROBE_TIMEOUT_SECONDS)) return true;
+        } catch (SQLException e) {
+            // treated the same as an invalid connection
+        }
+        replica.markUnhealthy(System.nanoTime() + cooldownNanos);
+        return false;
+    }
+
+    private Replica findReplica(Connection connection) {
+        for (Replica replica : replicas) {
+            if (replica.connection == connection) return replica;
+        }
+        return null;
+    }
+
+    private static class Replica {
+        private final Connection connection;
+        private volatile long unhealthyUntil = System.nanoTime();
+        private volatile boolean needsProbe;
+
+        private Replica(Connection connection) {
+            this.connection = connection;
+        }
+
+        private void markUnhealthy(long until) {
+            unhealthyUntil = until;
+            needsProbe = true;
+        }
+    }
+}
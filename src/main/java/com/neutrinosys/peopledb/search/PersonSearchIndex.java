@@ -0,0 +1,314 @@
+package com.neutrinosys.peopledb.search;
+
+import com.neutrinosys.peopledb.exception.DataException;
+import com.neutrinosys.peopledb.model.ChangeEvent;
+import com.neutrinosys.peopledb.model.ChangeType;
+import com.neutrinosys.peopledb.model.Person;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.Flow;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory search over first names, last names and emails.
+ * <p>
+ * Every field is lower-cased and split into terms on anything that is not a letter or digit, so
+ * "john.smith@example.com" yields john, smith, example and com. A term dictionary kept in sorted
+ * order answers exact and prefix lookups, and a trigram index over the distinct terms answers
+ * substring lookups of three or more characters.
+ * <p>
+ * Every word of a query must match a term of the person. Each word scores 3 for an exact term,
+ * 2 for a term prefix and 1 for a substring, and results are ranked by total score, then by ID.
+ * Only the top limit results are kept while ranking.
+ * <p>
+ * Subscribe the index to a repository's ChangeFeed to keep it current. Events arrive
+ * asynchronously, so a write shows up in search results shortly after it runs, committed or not,
+ * and a rolled back write stays indexed until the person is written again or the index is reloaded.
+ * PeopleRepository.search checks every hit against the database with matches() and fetches more
+ * hits to make up for the stale ones.
+ */
+public class PersonSearchIndex implements Flow.Subscriber<ChangeEvent> {
+    public static final String LOAD_SQL = "SELECT ID, FIRST_NAME, LAST_NAME, EMAIL FROM PEOPLE ORDER BY ID";
+    private static final int FETCH_SIZE = 10_000;
+    private static final int EXACT_SCORE = 3;
+    private static final int PREFIX_SCORE = 2;
+    private static final int SUBSTRING_SCORE = 1;
+
+    private final TreeMap<String, PostingList> terms = new TreeMap<>();
+    private final Map<String, Set<String>> trigrams = new HashMap<>();
+    private final Map<Long, Document> documents = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    public static PersonSearchIndex load(Connection connection) {
+        PersonSearchIndex index = new PersonSearchIndex();
+        try (PreparedStatement ps = connection.prepareStatement(LOAD_SQL, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            ps.setFetchSize(FETCH_SIZE);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    index.add(rs.getLong("ID"), rs.getString("FIRST_NAME"), rs.getString("LAST_NAME"), rs.getString("EMAIL"));
+                }
+            }
+        } catch (SQLException e) {
+            throw new DataException("Unable to load person search index", e);
+        }
+        return index;
+    }
+
+    /**
+     * Indexes the person, replacing whatever was indexed for that ID before.
+     */
+    public void add(long id, String firstName, String lastName, String email) {
+        Document document = new Document(firstName, lastName, email);
+        lock.writeLock().lock();
+        try {
+            Document previous = documents.put(id, document);
+            if (previous != null) {
+                unindex(id, previous);
+            }
+            for (String term : terms(document)) {
+                terms.computeIfAbsent(term, this::newTerm).add(id);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(long id) {
+        lock.writeLock().lock();
+        try {
+            Document previous = documents.remove(id);
+            if (previous != null) {
+                unindex(id, previous);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @return Up to limit matching person IDs, best match first.
+     */
+    public List<Long> search(String query, int limit) {
+        List<String> words = tokenize(query);
+        if (words.isEmpty()) return List.of();
+        lock.readLock().lock();
+        try {
+            if (limit <= 0) return List.of();
+            Map<Long, Integer> scores = null;
+            for (String word : words) {
+                Map<Long, Integer> wordScores = score(word);
+                if (scores == null) {
+                    scores = wordScores;
+                } else {
+                    Map<Long, Integer> previous = scores;
+                    scores = new HashMap<>();
+                    for (Map.Entry<Long, Integer> entry : wordScores.entrySet()) {
+                        Integer previousScore = previous.get(entry.getKey());
+                        if (previousScore != null) scores.put(entry.getKey(), previousScore + entry.getValue());
+                    }
+                }
+                if (scores.isEmpty()) return List.of();
+            }
+            return topScores(scores, limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return Whether a person with these fields would be found by the query, using the same matching
+     *         rules as search(). Lets callers re-check hits against the stored person.
+     */
+    public static boolean matches(String query, String firstName, String lastName, String email) {
+        List<String> words = tokenize(query);
+        if (words.isEmpty()) return false;
+        Set<String> terms = terms(new Document(firstName, lastName, email));
+        for (String word : words) {
+            boolean matched = terms.stream().anyMatch(term -> term.startsWith(word) || word.length() >= 3 && term.contains(word));
+            if (!matched) return false;
+        }
+        return true;
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return documents.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+        subscription.request(Long.MAX_VALUE);
+    }
+
+    /**
+     * Applies a Person change. UPDATE statements do not write EMAIL, so an update without an email
+     * keeps the one already indexed. Inserts and updates that carry no entity, such as those read back
+     * by an OutboxPoller, are ignored; subscribe the index to the repository's ChangeFeed instead.
+     */
+    @Override
+    public void onNext(ChangeEvent event) {
+        if (!Person.class.getSimpleName().equals(event.entityType())) return;
+        if (event.entity() == null && event.type() != ChangeType.DELETE) return;
+        switch (event.type()) {
+            case INSERT -> {
+                Person person = (Person) event.entity();
+                add(event.entityId(), person.getFirstName(), person.getLastName(), person.getEmail());
+            }
+            case UPDATE -> {
+                Person person = (Person) event.entity();
+                String email = person.getEmail();
+                if (email == null) {
+                    lock.readLock().lock();
+                    try {
+                        Document previous = documents.get(event.entityId());
+                        email = previous == null ? null : previous.email();
+                    } finally {
+                        lock.readLock().unlock();
+                    }
+                }
+                add(event.entityId(), person.getFirstName(), person.getLastName(), email);
+            }
+            case DELETE -> remove(event.entityId());
+        }
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+    }
+
+    @Override
+    public void onComplete() {
+    }
+
+    private Map<Long, Integer> score(String word) {
+        Map<Long, Integer> scores = new HashMap<>();
+        PostingList exact = terms.get(word);
+        if (exact != null) {
+            addScores(scores, exact, EXACT_SCORE);
+        }
+        for (PostingList prefixed : terms.subMap(word, false, word + Character.MAX_VALUE, false).values()) {
+            addScores(scores, prefixed, PREFIX_SCORE);
+        }
+        if (word.length() >= 3) {
+            for (String term : termsContaining(word)) {
+                if (!term.startsWith(word)) {
+                    addScores(scores, terms.get(term), SUBSTRING_SCORE);
+                }
+            }
+        }
+        return scores;
+    }
+
+    /**
+     * Keeps the best limit entries in a min-heap whose head is the worst kept entry, so ranking costs
+     * O(n log limit) rather than sorting every match.
+     */
+    private static List<Long> topScores(Map<Long, Integer> scores, int limit) {
+        Comparator<Map.Entry<Long, Integer>> ranking = Map.Entry.<Long, Integer>comparingByValue().reversed()
+                .thenComparing(Map.Entry.comparingByKey());
+        PriorityQueue<Map.Entry<Long, Integer>> top = new PriorityQueue<>(Math.min(limit, scores.size()) + 1, ranking.reversed());
+        for (Map.Entry<Long, Integer> entry : scores.entrySet()) {
+            if (top.size() < limit) {
+                top.add(entry);
+            } else if (ranking.compare(entry, top.peek()) < 0) {
+                top.poll();
+                top.add(entry);
+            }
+        }
+        List<Long> ids = new ArrayList<>(top.size());
+        while (!top.isEmpty()) {
+            ids.add(top.poll().getKey());
+        }
+        Collections.reverse(ids);
+        return ids;
+    }
+
+    private static void addScores(Map<Long, Integer> scores, PostingList postings, int score) {
+        for (int i = 0; i < postings.size(); i++) {
+            scores.merge(postings.get(i), score, Math::max);
+        }
+    }
+
+    private Set<String> termsContaining(String word) {
+        Set<String> candidates = null;
+        for (int i = 0; i + 3 <= word.length(); i++) {
+            Set<String> withTrigram = trigrams.get(word.substring(i, i + 3));
+            if (withTrigram == null) return Set.of();
+            if (candidates == null) {
+                candidates = new HashSet<>(withTrigram);
+            } else {
+                candidates.retainAll(withTrigram);
+            }
+        }
+        candidates.removeIf(term -> !term.contains(word));
+        return candidates;
+    }
+
+    private PostingList newTerm(String term) {
+        for (int i = 0; i + 3 <= term.length(); i++) {
+            trigrams.computeIfAbsent(term.substring(i, i + 3), trigram -> new HashSet<>()).add(term);
+        }
+        return new PostingList();
+    }
+
+    private void unindex(long id, Document document) {
+        for (String term : terms(document)) {
+            PostingList postings = terms.get(term);
+            if (postings == null) continue;
+            postings.remove(id);
+            if (postings.isEmpty()) {
+                terms.remove(term);
+                for (int i = 0; i + 3 <= term.length(); i++) {
+                    Set<String> withTrigram = trigrams.get(term.substring(i, i + 3));
+                    withTrigram.remove(term);
+                    if (withTrigram.isEmpty()) trigrams.remove(term.substring(i, i + 3));
+                }
+            }
+        }
+    }
+
+    private static Set<String> terms(Document document) {
+        Set<String> terms = new HashSet<>();
+        terms.addAll(tokenize(document.firstName()));
+        terms.addAll(tokenize(document.lastName()));
+        terms.addAll(tokenize(document.email()));
+        return terms;
+    }
+
+    static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null) return tokens;
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean wordChar = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                tokens.add(text.substring(start, i).toLowerCase());
+                start = -1;
+            }
+        }
+        return tokens;
+    }
+
+    private record Document(String firstName, String lastName, String email) {
+    }
+}
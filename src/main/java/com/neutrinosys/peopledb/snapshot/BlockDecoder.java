@@ -0,0 +1,66 @@
+package com.neutrinosys.peopledb.snapshot;
+
+import com.neutrinosys.peopledb.exception.DataException;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads the rows of one block payload written by BlockEncoder.
+ */
+class BlockDecoder {
+    private final List<String> dictionary = new ArrayList<>();
+    private ByteBuffer payload;
+    private long previousId;
+
+    void reset(ByteBuffer payload) {
+        this.payload = payload;
+        dictionary.clear();
+        previousId = 0;
+    }
+
+    boolean hasRemaining() {
+        return payload.hasRemaining();
+    }
+
+    long readId() {
+        previousId += readVarLong();
+        return previousId;
+    }
+
+    int readByte() {
+        return payload.get() & 0xFF;
+    }
+
+    long readVarLong() {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = payload.get();
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) return value;
+        }
+        throw new DataException("Malformed varint in snapshot block");
+    }
+
+    long readZigZag() {
+        long value = readVarLong();
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    String readString() {
+        int reference = (int) readVarLong();
+        if (reference == 0) return null;
+        if (reference <= dictionary.size()) return dictionary.get(reference - 1);
+        if (reference != dictionary.size() + 1) {
+            throw new DataException("Snapshot string reference " + reference + " is out of range");
+        }
+        int byteLength = (int) readVarLong();
+        byte[] bytes = new byte[byteLength];
+        payload.get(bytes);
+        String value = new String(bytes, StandardCharsets.UTF_8);
+        dictionary.add(value);
+        return value;
+    }
+}
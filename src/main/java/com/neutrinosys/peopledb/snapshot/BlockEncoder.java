@@ -0,0 +1,79 @@
+package com.neutrinosys.peopledb.snapshot;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Builds one block payload in a reusable, growable byte array.
+ */
+class BlockEncoder {
+    private final Map<String, Integer> dictionary = new HashMap<>();
+    private byte[] buffer = new byte[64 * 1024];
+    private int length;
+    private long previousId;
+
+    void reset() {
+        dictionary.clear();
+        length = 0;
+        previousId = 0;
+    }
+
+    int length() {
+        return length;
+    }
+
+    ByteBuffer payload() {
+        return ByteBuffer.wrap(buffer, 0, length);
+    }
+
+    void writeId(long id) {
+        writeVarLong(id - previousId);
+        previousId = id;
+    }
+
+    void writeByte(int value) {
+        ensureCapacity(1);
+        buffer[length++] = (byte) value;
+    }
+
+    void writeVarLong(long value) {
+        ensureCapacity(10);
+        while ((value & ~0x7FL) != 0) {
+            buffer[length++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buffer[length++] = (byte) value;
+    }
+
+    void writeZigZag(long value) {
+        writeVarLong((value << 1) ^ (value >> 63));
+    }
+
+    void writeString(String value) {
+        if (value == null) {
+            writeVarLong(0);
+            return;
+        }
+        Integer index = dictionary.get(value);
+        if (index != null) {
+            writeVarLong(index + 1);
+            return;
+        }
+        writeVarLong(dictionary.size() + 1);
+        dictionary.put(value, dictionary.size());
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarLong(bytes.length);
+        ensureCapacity(bytes.length);
+        System.arraycopy(bytes, 0, buffer, length, bytes.length);
+        length += bytes.length;
+    }
+
+    private void ensureCapacity(int extra) {
+        if (length + extra > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, length + extra));
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.neutrinosys.peopledb.snapshot;
+
+import com.neutrinosys.peopledb.dialect.Dialect;
+import com.neutrinosys.peopledb.exception.DataException;
+import com.neutrinosys.peopledb.model.SnapshotSummary;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+
+/**
+ * Dumps PEOPLE and ADDRESSES, IDs, links and person versions included, to a compact binary file and
+ * loads it back, so entities read before an export still conflict correctly after a restore.
+ * See {@link SnapshotFormat} for the file layout.
+ * <p>
+ * For a consistent dump of a live database, export on a connection with auto-commit off at
+ * REPEATABLE READ or stricter. Postgres only streams the result sets with auto-commit off.
+ */
+public class PeopleSnapshot {
+    public static final String EXPORT_ADDRESSES_SQL = """
+            SELECT ID, STREET_ADDRESS, ADDRESS2, CITY, STATE, POSTCODE, COUNTY, REGION, COUNTRY
+            FROM ADDRESSES ORDER BY ID
+            """;
+    public static final String EXPORT_PEOPLE_SQL = """
+            SELECT ID, FIRST_NAME, LAST_NAME, DOB, SALARY, EMAIL, HOME_ADDRESS, BIZ_ADDRESS, PARENT_ID, VERSION
+            FROM PEOPLE ORDER BY ID
+            """;
+    public static final String RESTORE_ADDRESS_SQL = """
+            INSERT INTO ADDRESSES (ID, STREET_ADDRESS, ADDRESS2, CITY, STATE, POSTCODE, COUNTY, REGION, COUNTRY)
+            VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)
+            """;
+    public static final String RESTORE_PERSON_SQL = """
+            INSERT INTO PEOPLE (ID, FIRST_NAME, LAST_NAME, DOB, SALARY, EMAIL, HOME_ADDRESS, BIZ_ADDRESS, PARENT_ID, VERSION)
+            VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
+            """;
+
+    private PeopleSnapshot() {
+    }
+
+    public static SnapshotSummary export(Connection connection, Path file) {
+        long start = System.nanoTime();
+        try (SnapshotWriter writer = new SnapshotWriter(file)) {
+            long addresses = writer.writeAddresses(connection);
+            long people = writer.writePeople(connection);
+            long bytes = writer.finish();
+            return new SnapshotSummary(addresses, people, bytes, Duration.ofNanos(System.nanoTime() - start));
+        } catch (IOException e) {
+            throw new DataException("Unable to write snapshot " + file, e);
+        } catch (SQLException e) {
+            throw new DataException("Unable to export people snapshot", e);
+        }
+    }
+
+    /**
+     * Replaces the contents of PEOPLE and ADDRESSES with the snapshot, keeping the original IDs, then
+     * moves both identity columns past the highest restored ID.
+     * With auto-commit off, every block is committed once inserted, so a failed restore leaves the
+     * blocks before the failure in place. Foreign keys on PARENT_ID must tolerate rows in ID order.
+     */
+    public static SnapshotSummary restore(Connection connection, Path file) {
+        long start = System.nanoTime();
+        try (SnapshotReader reader = new SnapshotReader(file)) {
+            try (Statement stmt = connection.createStatement()) {
+                stmt.executeUpdate("DELETE FROM PEOPLE");
+                stmt.executeUpdate("DELETE FROM ADDRESSES");
+            }
+            reader.readInto(connection);
+            Dialect dialect = Dialect.detect(connection);
+            dialect.restartIdentity(connection, "ADDRESSES", "ID");
+            dialect.restartIdentity(connection, "PEOPLE", "ID");
+            if (!connection.getAutoCommit()) connection.commit();
+            return new SnapshotSummary(reader.getAddresses(), reader.getPeople(), reader.getBytes(),
+                    Duration.ofNanos(System.nanoTime() - start));
+        } catch (IOException e) {
+            throw new DataException("Unable to read snapshot " + file, e);
+        } catch (SQLException e) {
+            throw new DataException("Unable to restore people snapshot", e);
+        }
+    }
+}
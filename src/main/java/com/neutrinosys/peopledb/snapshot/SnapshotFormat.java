@@ -0,0 +1,43 @@
+package com.neutrinosys.peopledb.snapshot;
+
+/**
+ * Layout of a snapshot file. All fixed-width numbers are big-endian.
+ * <pre>
+ * file   := MAGIC version:int block* END-block
+ * block  := kind:byte rowCount:int payloadLength:int crc32:int payload
+ * </pre>
+ * ADDRESSES blocks come before PEOPLE blocks. Each block decodes on its own: the string dictionary
+ * and the ID delta base are reset at every block boundary.
+ * <p>
+ * Inside a payload, IDs are unsigned varint deltas from the previous row's ID (rows are written in
+ * ID order), signed numbers are zigzag varints and strings are dictionary references: 0 is null,
+ * 1..n refers to an earlier string in the block and n + 1 introduces a new string as a varint byte
+ * length followed by UTF-8 bytes.
+ * <pre>
+ * address := idDelta streetAddress address2 city state postcode county region country
+ * person  := idDelta presence:byte firstName lastName email version:varint
+ *            [dobEpochSecond:zigzag dobNano:varint] [salaryScale:varint salaryUnscaled:zigzag]
+ *            [homeAddress:varint] [bizAddress:varint] [parentId:varint]
+ * </pre>
+ * A person's bracketed fields are only present when the matching presence bit is set.
+ */
+final class SnapshotFormat {
+    static final byte[] MAGIC = {'P', 'D', 'B', 'S'};
+    static final int VERSION = 1;
+    static final int FILE_HEADER_LENGTH = MAGIC.length + Integer.BYTES;
+    static final int BLOCK_HEADER_LENGTH = 1 + 3 * Integer.BYTES;
+    static final int ROWS_PER_BLOCK = 4096;
+
+    static final byte END = 0;
+    static final byte ADDRESSES = 1;
+    static final byte PEOPLE = 2;
+
+    static final int HAS_DOB = 1;
+    static final int HAS_SALARY = 1 << 1;
+    static final int HAS_HOME_ADDRESS = 1 << 2;
+    static final int HAS_BIZ_ADDRESS = 1 << 3;
+    static final int HAS_PARENT = 1 << 4;
+
+    private SnapshotFormat() {
+    }
+}
@@ -0,0 +1,171 @@
+package com.neutrinosys.peopledb.snapshot;
+
+import com.neutrinosys.peopledb.exception.DataException;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+import static com.neutrinosys.peopledb.snapshot.SnapshotFormat.*;
+
+/**
+ * Reads a snapshot through memory-mapped windows of the file, verifies each block's checksum and
+ * inserts its rows as one JDBC batch.
+ */
+class SnapshotReader implements AutoCloseable {
+    private static final long WINDOW_SIZE = 256L * 1024 * 1024;
+
+    private final FileChannel channel;
+    private final long size;
+    private final BlockDecoder decoder = new BlockDecoder();
+    private final CRC32 crc = new CRC32();
+    private MappedByteBuffer window;
+    private long windowStart;
+    private long addresses;
+    private long people;
+
+    SnapshotReader(Path file) throws IOException {
+        channel = FileChannel.open(file, StandardOpenOption.READ);
+        size = channel.size();
+        ByteBuffer header = slice(0, FILE_HEADER_LENGTH);
+        byte[] magic = new byte[MAGIC.length];
+        header.get(magic);
+        if (!Arrays.equals(magic, MAGIC)) {
+            throw new DataException(file + " is not a people snapshot");
+        }
+        int version = header.getInt();
+        if (version > VERSION) {
+            throw new DataException("Snapshot version " + version + " is newer than the supported version " + VERSION);
+        }
+    }
+
+    void readInto(Connection connection) throws SQLException, IOException {
+        boolean commitPerBlock = !connection.getAutoCommit();
+        try (PreparedStatement addressPs = connection.prepareStatement(PeopleSnapshot.RESTORE_ADDRESS_SQL);
+             PreparedStatement personPs = connection.prepareStatement(PeopleSnapshot.RESTORE_PERSON_SQL)) {
+            long position = FILE_HEADER_LENGTH;
+            while (true) {
+                ByteBuffer header = slice(position, BLOCK_HEADER_LENGTH);
+                byte kind = header.get();
+                int rows = header.getInt();
+                int length = header.getInt();
+                int checksum = header.getInt();
+                if (kind == END) return;
+
+                ByteBuffer payload = slice(position + BLOCK_HEADER_LENGTH, length);
+                crc.reset();
+                crc.update(payload.duplicate());
+                if ((int) crc.getValue() != checksum) {
+                    throw new DataException("Snapshot block at offset " + position + " fails its checksum");
+                }
+                decoder.reset(payload);
+                switch (kind) {
+                    case ADDRESSES -> {
+                        for (int i = 0; i < rows; i++) bindAddress(addressPs);
+                        addressPs.executeBatch();
+                        addresses += rows;
+                    }
+                    case PEOPLE -> {
+                        for (int i = 0; i < rows; i++) bindPerson(personPs);
+                        personPs.executeBatch();
+                        people += rows;
+                    }
+                    default -> throw new DataException("Unknown snapshot block kind " + kind + " at offset " + position);
+                }
+                if (decoder.hasRemaining()) {
+                    throw new DataException("Snapshot block at offset " + position + " has more data than its " + rows + " rows");
+                }
+                if (commitPerBlock) connection.commit();
+                position += BLOCK_HEADER_LENGTH + length;
+            }
+        }
+    }
+
+    long getAddresses() {
+        return addresses;
+    }
+
+    long getPeople() {
+        return people;
+    }
+
+    long getBytes() {
+        return size;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private void bindAddress(PreparedStatement ps) throws SQLException {
+        ps.setLong(1, decoder.readId());
+        for (int column = 2; column <= 9; column++) {
+            ps.setString(column, decoder.readString());
+        }
+        ps.addBatch();
+    }
+
+    private void bindPerson(PreparedStatement ps) throws SQLException {
+        ps.setLong(1, decoder.readId());
+        int presence = decoder.readByte();
+        ps.setString(2, decoder.readString());
+        ps.setString(3, decoder.readString());
+        ps.setString(6, decoder.readString());
+        ps.setLong(10, decoder.readVarLong());
+        if ((presence & HAS_DOB) != 0) {
+            long epochSecond = decoder.readZigZag();
+            int nano = (int) decoder.readVarLong();
+            ps.setTimestamp(4, Timestamp.valueOf(LocalDateTime.ofEpochSecond(epochSecond, nano, ZoneOffset.UTC)));
+        } else {
+            ps.setNull(4, Types.TIMESTAMP);
+        }
+        if ((presence & HAS_SALARY) != 0) {
+            int scale = (int) decoder.readVarLong();
+            ps.setBigDecimal(5, BigDecimal.valueOf(decoder.readZigZag(), scale));
+        } else {
+            ps.setNull(5, Types.DECIMAL);
+        }
+        bindLink(ps, 7, (presence & HAS_HOME_ADDRESS) != 0);
+        bindLink(ps, 8, (presence & HAS_BIZ_ADDRESS) != 0);
+        bindLink(ps, 9, (presence & HAS_PARENT) != 0);
+        ps.addBatch();
+    }
+
+    private void bindLink(PreparedStatement ps, int index, boolean present) throws SQLException {
+        if (present) {
+            ps.setLong(index, decoder.readVarLong());
+        } else {
+            ps.setNull(index, Types.BIGINT);
+        }
+    }
+
+    /**
+     * Returns a view of [position, position + length) of the file, mapping a new window when the
+     * current one does not cover the range.
+     */
+    private ByteBuffer slice(long position, int length) throws IOException {
+        if (position + length > size) {
+            throw new DataException("Snapshot is truncated at offset " + position);
+        }
+        if (window == null || position < windowStart || position + length > windowStart + window.capacity()) {
+            long mapLength = Math.min(size - position, Math.max(WINDOW_SIZE, length));
+            window = channel.map(FileChannel.MapMode.READ_ONLY, position, mapLength);
+            windowStart = position;
+        }
+        return window.slice((int) (position - windowStart), length);
+    }
+}
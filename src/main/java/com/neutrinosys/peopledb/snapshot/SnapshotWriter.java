@@ -0,0 +1,147 @@
+package com.neutrinosys.peopledb.snapshot;
+
+import com.neutrinosys.peopledb.exception.DataException;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.zip.CRC32;
+
+import static com.neutrinosys.peopledb.snapshot.SnapshotFormat.*;
+
+/**
+ * Streams both tables into block payloads and writes each block with one gathering write.
+ */
+class SnapshotWriter implements AutoCloseable {
+    private static final int FETCH_SIZE = 10_000;
+
+    private final FileChannel channel;
+    private final BlockEncoder encoder = new BlockEncoder();
+    private final ByteBuffer blockHeader = ByteBuffer.allocate(BLOCK_HEADER_LENGTH);
+    private final CRC32 crc = new CRC32();
+    private int rowsInBlock;
+
+    SnapshotWriter(Path file) throws IOException {
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+        ByteBuffer fileHeader = ByteBuffer.allocate(FILE_HEADER_LENGTH).put(MAGIC).putInt(VERSION).flip();
+        writeFully(fileHeader);
+    }
+
+    long writeAddresses(Connection connection) throws SQLException, IOException {
+        long rows = 0;
+        try (ResultSet rs = query(connection, PeopleSnapshot.EXPORT_ADDRESSES_SQL)) {
+            while (rs.next()) {
+                encoder.writeId(rs.getLong(1));
+                for (int column = 2; column <= 9; column++) {
+                    encoder.writeString(rs.getString(column));
+                }
+                rowWritten(ADDRESSES);
+                rows++;
+            }
+        }
+        flushBlock(ADDRESSES);
+        return rows;
+    }
+
+    long writePeople(Connection connection) throws SQLException, IOException {
+        long rows = 0;
+        try (ResultSet rs = query(connection, PeopleSnapshot.EXPORT_PEOPLE_SQL)) {
+            while (rs.next()) {
+                long id = rs.getLong("ID");
+                Timestamp dob = rs.getTimestamp("DOB");
+                BigDecimal salary = rs.getBigDecimal("SALARY");
+                long homeAddress = rs.getLong("HOME_ADDRESS");
+                boolean hasHomeAddress = !rs.wasNull();
+                long bizAddress = rs.getLong("BIZ_ADDRESS");
+                boolean hasBizAddress = !rs.wasNull();
+                long parentId = rs.getLong("PARENT_ID");
+                boolean hasParent = !rs.wasNull();
+
+                encoder.writeId(id);
+                encoder.writeByte((dob != null ? HAS_DOB : 0) | (salary != null ? HAS_SALARY : 0)
+                        | (hasHomeAddress ? HAS_HOME_ADDRESS : 0) | (hasBizAddress ? HAS_BIZ_ADDRESS : 0)
+                        | (hasParent ? HAS_PARENT : 0));
+                encoder.writeString(rs.getString("FIRST_NAME"));
+                encoder.writeString(rs.getString("LAST_NAME"));
+                encoder.writeString(rs.getString("EMAIL"));
+                encoder.writeVarLong(rs.getLong("VERSION"));
+                if (dob != null) {
+                    LocalDateTime utcDob = dob.toLocalDateTime();
+                    encoder.writeZigZag(utcDob.toEpochSecond(ZoneOffset.UTC));
+                    encoder.writeVarLong(utcDob.getNano());
+                }
+                if (salary != null) {
+                    if (salary.unscaledValue().bitLength() > 63) {
+                        throw new DataException("Salary of person " + id + " is too large for a snapshot");
+                    }
+                    encoder.writeVarLong(salary.scale());
+                    encoder.writeZigZag(salary.unscaledValue().longValue());
+                }
+                if (hasHomeAddress) encoder.writeVarLong(homeAddress);
+                if (hasBizAddress) encoder.writeVarLong(bizAddress);
+                if (hasParent) encoder.writeVarLong(parentId);
+                rowWritten(PEOPLE);
+                rows++;
+            }
+        }
+        flushBlock(PEOPLE);
+        return rows;
+    }
+
+    /**
+     * Writes the END block and forces the file to disk.
+     * @return The size of the finished file.
+     */
+    long finish() throws IOException {
+        flushBlock(END);
+        channel.force(false);
+        return channel.size();
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private ResultSet query(Connection connection, String sql) throws SQLException {
+        PreparedStatement ps = connection.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+        ps.setFetchSize(FETCH_SIZE);
+        ps.closeOnCompletion();
+        return ps.executeQuery();
+    }
+
+    private void rowWritten(byte kind) throws IOException {
+        if (++rowsInBlock == ROWS_PER_BLOCK) {
+            flushBlock(kind);
+        }
+    }
+
+    private void flushBlock(byte kind) throws IOException {
+        if (rowsInBlock == 0 && kind != END) return;
+        ByteBuffer payload = encoder.payload();
+        crc.reset();
+        crc.update(payload.duplicate());
+        blockHeader.clear().put(kind).putInt(rowsInBlock).putInt(encoder.length()).putInt((int) crc.getValue()).flip();
+        writeFully(blockHeader, payload);
+        encoder.reset();
+        rowsInBlock = 0;
+    }
+
+    private void writeFully(ByteBuffer... buffers) throws IOException {
+        long remaining = 0;
+        for (ByteBuffer buffer : buffers) remaining += buffer.remaining();
+        while (remaining > 0) {
+            remaining -= channel.write(buffers);
+        }
+    }
+}
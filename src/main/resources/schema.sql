@@ -0,0 +1,32 @@
+CREATE TABLE IF NOT EXISTS ADDRESSES (
+    ID ${ID},
+    STREET_ADDRESS VARCHAR(255),
+    ADDRESS2 VARCHAR(255),
+    CITY VARCHAR(255),
+    STATE VARCHAR(255),
+    POSTCODE VARCHAR(255),
+    COUNTY VARCHAR(255),
+    REGION VARCHAR(255),
+    COUNTRY VARCHAR(255)
+);
+
+CREATE TABLE IF NOT EXISTS PEOPLE (
+    ID ${ID},
+    FIRST_NAME VARCHAR(255),
+    LAST_NAME VARCHAR(255),
+    DOB TIMESTAMP,
+    SALARY DECIMAL(15, 2),
+    EMAIL VARCHAR(255),
+    HOME_ADDRESS BIGINT,
+    BIZ_ADDRESS BIGINT,
+    PARENT_ID BIGINT,
+    VERSION BIGINT DEFAULT 0 NOT NULL
+);
+
+CREATE TABLE IF NOT EXISTS CHANGE_OUTBOX (
+    ID ${ID},
+    ENTITY_TYPE VARCHAR(100) NOT NULL,
+    ENTITY_ID BIGINT NOT NULL,
+    CHANGE_TYPE VARCHAR(10) NOT NULL,
+    CREATED_AT TIMESTAMP NOT NULL
+);
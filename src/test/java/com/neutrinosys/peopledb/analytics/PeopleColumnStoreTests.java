@@ -0,0 +1,81 @@
+package com.neutrinosys.peopledb.analytics;
+
+import com.neutrinosys.peopledb.dialect.Schema;
+import com.neutrinosys.peopledb.model.Person;
+import com.neutrinosys.peopledb.model.SalaryStats;
+import com.neutrinosys.peopledb.repository.PeopleRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+public class PeopleColumnStoreTests {
+
+    private Connection connection;
+    private PeopleRepository repo;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        connection = DriverManager.getConnection("jdbc:h2:~/peopletest;TRACE_LEVEL_SYSTEM_OUT=0".replace("~", System.getProperty("user.home")));
+        Schema.migrate(connection);
+        connection.setAutoCommit(false);
+        repo = new PeopleRepository(connection);
+    }
+
+    @AfterEach
+    void tearDown() throws SQLException {
+        if (connection != null) {
+            connection.close();
+        }
+    }
+
+    @Test
+    public void canLoadAllPeople() {
+        repo.save(new Person(0, "John", "Columnar", ZonedDateTime.of(1980, 11, 15, 15, 15, 0, 0, ZoneId.of("-6")), new BigDecimal("100.25")));
+        PeopleColumnStore store = PeopleColumnStore.load(connection);
+        assertThat(store.size()).isEqualTo(repo.count());
+        assertThat(store.countByLastName("Columnar")).isGreaterThanOrEqualTo(1);
+    }
+
+    @Test
+    public void canRefreshIdRange() {
+        PeopleColumnStore store = PeopleColumnStore.load(connection);
+        int startSize = store.size();
+        Person saved = repo.save(new Person(0, "John", "Columnar", ZonedDateTime.of(1980, 11, 15, 15, 15, 0, 0, ZoneId.of("-6")), new BigDecimal("100.25")));
+        store.refresh(connection, saved.getId(), saved.getId());
+        assertThat(store.size()).isEqualTo(startSize + 1);
+        assertThat(store.getSalary(store.size() - 1)).isEqualByComparingTo("100.25");
+    }
+
+    @Test
+    public void rejectsReversedRefreshRange() {
+        PeopleColumnStore store = PeopleColumnStore.load(connection);
+        assertThatThrownBy(() -> store.refresh(connection, 10, 5)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void skipsNullDobAndSalaryLikeSql() throws SQLException {
+        connection.createStatement().executeUpdate("INSERT INTO PEOPLE (FIRST_NAME, LAST_NAME) VALUES ('Nobody', 'Columnar')");
+        repo.save(new Person(0, "John", "Columnar", ZonedDateTime.of(1970, 1, 1, 0, 0, 30, 0, ZoneId.of("+0")), new BigDecimal("100.25")));
+        PeopleColumnStore store = PeopleColumnStore.load(connection);
+        SalaryStats stats = repo.getSalaryStats();
+        ZonedDateTime from = ZonedDateTime.of(1970, 1, 1, 0, 0, 0, 0, ZoneId.of("+0"));
+        ZonedDateTime to = from.plusDays(1);
+
+        assertThat(store.countBornBetween(from, to)).isEqualTo(repo.countByDobBetween(from, to));
+        assertThat(store.sumSalary()).isEqualByComparingTo(stats.sum());
+        assertThat(store.averageSalary()).isCloseTo(stats.avg(), within(new BigDecimal("0.01")));
+        assertThat(store.getSalary(store.size() - 2)).isNull();
+        assertThat(store.getDob(store.size() - 2)).isNull();
+    }
+}
@@ -0,0 +1,109 @@
+package com.neutrinosys.peopledb.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class ResultCacheTests {
+    private static final Class<?> SCOPE = ResultCacheTests.class;
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @Test
+    public void reusesResultWithinWindow() {
+        ResultCache cache = new ResultCache(Duration.ofMinutes(1));
+        assertThat(cache.get(SCOPE, "count", List.of(), loads::incrementAndGet)).isEqualTo(1);
+        assertThat(cache.get(SCOPE, "count", List.of(), loads::incrementAndGet)).isEqualTo(1);
+        assertThat(cache.get(SCOPE, "countByLastName", List.of("Smith"), loads::incrementAndGet)).isEqualTo(2);
+    }
+
+    @Test
+    public void keepsScopesApart() {
+        ResultCache cache = new ResultCache(Duration.ofMinutes(1));
+        assertThat(cache.get(SCOPE, "count", List.of(), loads::incrementAndGet)).isEqualTo(1);
+        assertThat(cache.get(String.class, "count", List.of(), loads::incrementAndGet)).isEqualTo(2);
+        assertThat(cache.get(SCOPE, "count", List.of(), loads::incrementAndGet)).isEqualTo(1);
+    }
+
+    @Test
+    public void reloadsAfterWindowOrInvalidation() {
+        ResultCache cache = new ResultCache(Duration.ofMinutes(1)).withWindow("count", Duration.ZERO);
+        cache.get(SCOPE, "count", List.of(), loads::incrementAndGet);
+        assertThat(cache.get(SCOPE, "count", List.of(), loads::incrementAndGet)).isEqualTo(2);
+
+        cache.get(SCOPE, "getSalaryStats", List.of(), loads::incrementAndGet);
+        cache.invalidateAll();
+        assertThat(cache.get(SCOPE, "getSalaryStats", List.of(), loads::incrementAndGet)).isEqualTo(4);
+    }
+
+    @Test
+    public void doesNotCacheFailures() {
+        ResultCache cache = new ResultCache(Duration.ofMinutes(1));
+        assertThatThrownBy(() -> cache.get(SCOPE, "count", List.of(), () -> { throw new IllegalStateException("down"); }))
+                .isInstanceOf(IllegalStateException.class);
+        assertThat(cache.get(SCOPE, "count", List.of(), loads::incrementAndGet)).isEqualTo(1);
+    }
+
+    @Test
+    public void doesNotCacheErrors() {
+        ResultCache cache = new ResultCache(Duration.ofMinutes(1));
+        assertThatThrownBy(() -> cache.get(SCOPE, "count", List.of(), () -> { throw new OutOfMemoryError("full"); }))
+                .isInstanceOf(OutOfMemoryError.class);
+        assertThat(cache.get(SCOPE, "count", List.of(), loads::incrementAndGet)).isEqualTo(1);
+    }
+
+    @Test
+    public void evictsResultsPastMaxEntries() {
+        ResultCache cache = new ResultCache(Duration.ofMinutes(1), 2);
+        for (int arg = 1; arg <= 3; arg++) {
+            assertThat(cache.get(SCOPE, "findByArg", List.of(arg), loads::incrementAndGet)).isEqualTo(arg);
+        }
+        assertThat(cache.get(SCOPE, "findByArg", List.of(3), loads::incrementAndGet)).isEqualTo(3);
+        assertThat(cache.get(SCOPE, "findByArg", List.of(1), loads::incrementAndGet)).isEqualTo(4);
+    }
+
+    @Test
+    public void coalescesConcurrentLoads() throws Exception {
+        ResultCache cache = new ResultCache(Duration.ofMinutes(1));
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            Future<Integer> first = executor.submit(() -> cache.get(SCOPE, "count", List.of(), () -> {
+                loading.countDown();
+                await(release);
+                return loads.incrementAndGet();
+            }));
+            assertThat(loading.await(5, TimeUnit.SECONDS)).isTrue();
+            List<Future<Integer>> waiters = List.of(
+                    executor.submit(() -> cache.get(SCOPE, "count", List.of(), loads::incrementAndGet)),
+                    executor.submit(() -> cache.get(SCOPE, "count", List.of(), loads::incrementAndGet)));
+            release.countDown();
+
+            assertThat(first.get(5, TimeUnit.SECONDS)).isEqualTo(1);
+            for (Future<Integer> waiter : waiters) {
+                assertThat(waiter.get(5, TimeUnit.SECONDS)).isEqualTo(1);
+            }
+            assertThat(loads).hasValue(1);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,188 @@
+package com.neutrinosys.peopledb.cdc;
+
+import com.neutrinosys.peopledb.dialect.Schema;
+import com.neutrinosys.peopledb.model.ChangeEvent;
+import com.neutrinosys.peopledb.model.ChangeType;
+import com.neutrinosys.peopledb.model.Person;
+import com.neutrinosys.peopledb.repository.PeopleRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+public class OutboxPollerTests {
+    private static final String URL = "jdbc:h2:mem:outbox";
+
+    private Connection writer;
+    private Connection lateWriter;
+    private Connection reader;
+    private ChangeFeed feed;
+    private final List<ChangeEvent> events = new CopyOnWriteArrayList<>();
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        writer = DriverManager.getConnection(URL);
+        Schema.create(writer);
+        writer.setAutoCommit(false);
+        lateWriter = DriverManager.getConnection(URL);
+        lateWriter.setAutoCommit(false);
+        reader = DriverManager.getConnection(URL);
+        feed = new ChangeFeed(true);
+    }
+
+    @AfterEach
+    void tearDown() throws SQLException {
+        feed.close();
+        writer.close();
+        lateWriter.close();
+        reader.close();
+    }
+
+    @Test
+    public void canPollCommittedInsertUpdateAndDelete() throws Exception {
+        PeopleRepository repo = new PeopleRepository(writer);
+        repo.setChangeFeed(feed);
+        Person savedPerson = repo.save(new Person("John", "Smith", ZonedDateTime.of(1980, 11, 15, 15, 15, 0, 0, ZoneId.of("-6"))));
+        savedPerson.setLastName("Smithers");
+        repo.update(savedPerson);
+        repo.delete(savedPerson);
+
+        try (OutboxPoller poller = subscribedPoller(Duration.ofMinutes(1))) {
+            assertThat(poller.poll()).isZero();
+            writer.commit();
+            assertThat(poller.poll()).isEqualTo(3);
+            awaitEvents(3);
+        }
+        assertThat(events).extracting(ChangeEvent::type, ChangeEvent::entityId).containsExactly(
+                tuple(ChangeType.INSERT, savedPerson.getId()),
+                tuple(ChangeType.UPDATE, savedPerson.getId()),
+                tuple(ChangeType.DELETE, savedPerson.getId()));
+    }
+
+    @Test
+    public void doesNotPollRolledBackWrites() throws Exception {
+        PeopleRepository repo = new PeopleRepository(writer);
+        repo.setChangeFeed(feed);
+        repo.save(new Person("John", "Smith", ZonedDateTime.of(1980, 11, 15, 15, 15, 0, 0, ZoneId.of("-6"))));
+        writer.rollback();
+
+        try (OutboxPoller poller = subscribedPoller(Duration.ofMinutes(1))) {
+            assertThat(poller.poll()).isZero();
+        }
+        assertThat(events).isEmpty();
+    }
+
+    @Test
+    public void publishesLateCommitThatFillsAGap() throws Exception {
+        insertOutboxRow(writer, 1L);
+        writer.commit();
+        insertOutboxRow(lateWriter, 2L);
+        insertOutboxRow(writer, 3L);
+        writer.commit();
+
+        try (OutboxPoller poller = subscribedPoller(Duration.ofMinutes(1))) {
+            assertThat(poller.poll()).isEqualTo(2);
+            assertThat(poller.getOpenGapCount()).isEqualTo(1);
+            assertThat(poller.getResumeId()).isEqualTo(1L);
+
+            lateWriter.commit();
+            poller.poll();
+            awaitEvents(3);
+            assertThat(poller.getOpenGapCount()).isZero();
+            assertThat(poller.getResumeId()).isEqualTo(poller.getLastSeenId());
+        }
+        assertThat(events).extracting(ChangeEvent::entityId).containsExactly(1L, 3L, 2L);
+    }
+
+    @Test
+    public void forgetsGapsAfterTimeout() throws Exception {
+        insertOutboxRow(writer, 1L);
+        writer.commit();
+        insertOutboxRow(lateWriter, 2L);
+        insertOutboxRow(writer, 3L);
+        writer.commit();
+        lateWriter.rollback();
+
+        try (OutboxPoller poller = subscribedPoller(Duration.ZERO)) {
+            poller.poll();
+            assertThat(poller.getOpenGapCount()).isEqualTo(1);
+            poller.poll();
+            assertThat(poller.getOpenGapCount()).isZero();
+        }
+    }
+
+    @Test
+    public void doesNotTrackPrunedIdsAsGaps() throws Exception {
+        for (long entityId = 1; entityId <= 3; entityId++) {
+            insertOutboxRow(writer, entityId);
+        }
+        writer.createStatement().executeUpdate("DELETE FROM CHANGE_OUTBOX WHERE ID < 3");
+        writer.commit();
+
+        try (OutboxPoller poller = subscribedPoller(Duration.ofMinutes(1))) {
+            assertThat(poller.poll()).isEqualTo(1);
+            assertThat(poller.getOpenGapCount()).isZero();
+            assertThat(poller.getResumeId()).isEqualTo(3L);
+        }
+    }
+
+    @Test
+    public void tracksARunOfSkippedIdsAsOneGap() throws Exception {
+        insertOutboxRow(writer, 1L);
+        writer.commit();
+        for (long entityId = 2; entityId <= 4; entityId++) {
+            insertOutboxRow(lateWriter, entityId);
+        }
+        insertOutboxRow(writer, 5L);
+        writer.commit();
+
+        try (OutboxPoller poller = subscribedPoller(Duration.ofMinutes(1))) {
+            poller.poll();
+            assertThat(poller.getOpenGapCount()).isEqualTo(1);
+
+            lateWriter.commit();
+            poller.poll();
+            awaitEvents(5);
+            assertThat(poller.getOpenGapCount()).isZero();
+        }
+        assertThat(events).extracting(ChangeEvent::entityId).containsExactly(1L, 5L, 2L, 3L, 4L);
+    }
+
+    private OutboxPoller subscribedPoller(Duration gapTimeout) {
+        OutboxPoller poller = new OutboxPoller(reader, 0, 10, gapTimeout);
+        poller.subscribe(new Flow.Subscriber<>() {
+            public void onSubscribe(Flow.Subscription subscription) { subscription.request(Long.MAX_VALUE); }
+            public void onNext(ChangeEvent event) { events.add(event); }
+            public void onError(Throwable throwable) { }
+            public void onComplete() { }
+        });
+        return poller;
+    }
+
+    private void awaitEvents(int expected) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (events.size() < expected && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(events).hasSize(expected);
+    }
+
+    private void insertOutboxRow(Connection connection, long entityId) throws SQLException {
+        Statement stmt = connection.createStatement();
+        stmt.executeUpdate("INSERT INTO CHANGE_OUTBOX (ENTITY_TYPE, ENTITY_ID, CHANGE_TYPE, CREATED_AT) VALUES ('Person', %d, 'INSERT', CURRENT_TIMESTAMP)".formatted(entityId));
+    }
+}
@@ -2,6 +2,7 @@ package com.neutrinosys.peopledb.model;
 
 import org.junit.jupiter.api.Test;
 
+import java.math.BigDecimal;
 import java.time.ZoneId;
 import java.time.ZonedDateTime;
 
@@ -25,4 +26,37 @@ class PersonTest {
 
     }
 
+    @Test
+    public void testForEqualityAcrossZones() {
+        Person p1 = new Person("p1", "smith", ZonedDateTime.of(2000, 9, 1, 12, 0, 0, 0, ZoneId.of("+0")));
+        Person p2 = new Person("p1", "smith", ZonedDateTime.of(2000, 9, 1, 6, 0, 0, 0, ZoneId.of("-6")));
+        assertThat(p1).isEqualTo(p2);
+        assertThat(p1.hashCode()).isEqualTo(p2.hashCode());
+    }
+
+    @Test
+    public void testEpochDobMatchesZonedDob() {
+        ZonedDateTime dob = ZonedDateTime.of(2000, 9, 1, 12, 0, 0, 0, ZoneId.of("+0"));
+        Person p1 = new Person(1L, "p1", "smith", dob);
+        Person p2 = new Person(1L, "p1", "smith", dob.toEpochSecond(), 0, BigDecimal.ZERO);
+        assertThat(p2).isEqualTo(p1);
+        assertThat(p2.getDob()).isEqualTo(dob);
+    }
+
+    @Test
+    public void testChildlessPersonHasNoChildren() {
+        Person p1 = new Person("p1", "smith", ZonedDateTime.of(2000, 9, 1, 12, 0, 0, 0, ZoneId.of("+0")));
+        assertThat(p1.getChildren()).isEmpty();
+        assertThat(p1.getParent()).isEmpty();
+        assertThat(p1.getHomeAddress()).isEmpty();
+    }
+
+    @Test
+    public void testChildrenSetIsMutableBeforeFirstChild() {
+        Person p1 = new Person("p1", "smith", ZonedDateTime.of(2000, 9, 1, 12, 0, 0, 0, ZoneId.of("+0")));
+        Person child = new Person("c1", "smith", ZonedDateTime.of(2020, 9, 1, 12, 0, 0, 0, ZoneId.of("+0")));
+        p1.getChildren().add(child);
+        assertThat(p1.getChildren()).containsExactly(child);
+    }
+
 }
\ No newline at end of file
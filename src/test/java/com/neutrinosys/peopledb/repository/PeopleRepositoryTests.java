@@ -1,8 +1,20 @@
 package com.neutrinosys.peopledb.repository;
 
+import com.neutrinosys.peopledb.cache.ResultCache;
+import com.neutrinosys.peopledb.cdc.ChangeFeed;
+import com.neutrinosys.peopledb.dialect.Schema;
+import com.neutrinosys.peopledb.exception.DataException;
+import com.neutrinosys.peopledb.exception.VersionConflictException;
 import com.neutrinosys.peopledb.model.Address;
+import com.neutrinosys.peopledb.model.ChangeEvent;
+import com.neutrinosys.peopledb.model.ChangeType;
 import com.neutrinosys.peopledb.model.Person;
+import com.neutrinosys.peopledb.model.PersonGrouping;
 import com.neutrinosys.peopledb.model.Region;
+import com.neutrinosys.peopledb.model.SalaryStats;
+import com.neutrinosys.peopledb.model.UpsertResult;
+import com.neutrinosys.peopledb.model.WarmupReport;
+import com.neutrinosys.peopledb.search.PersonSearchIndex;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Disabled;
@@ -19,9 +31,15 @@ import java.time.*;
 import java.time.format.DateTimeFormatter;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
 
 import static java.util.stream.Collectors.toSet;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.withinPercentage;
 
 public class PeopleRepositoryTests {
 
@@ -31,6 +49,7 @@ public class PeopleRepositoryTests {
     @BeforeEach
     void setUp() throws SQLException {
         connection = DriverManager.getConnection("jdbc:h2:~/peopletest;TRACE_LEVEL_SYSTEM_OUT=0".replace("~", System.getProperty("user.home")));
+        Schema.migrate(connection);
         connection.setAutoCommit(false);
         repo = new PeopleRepository(connection);
     }
@@ -166,6 +185,59 @@ public class PeopleRepositoryTests {
         assertThat(endCount).isEqualTo(startCount + 2);
     }
 
+    @Test
+    public void canCountByLastName() {
+        long startCount = repo.countByLastName("Aggregatesson");
+        repo.save(new Person("John", "Aggregatesson", ZonedDateTime.of(1980, 11, 15, 15, 15, 0, 0, ZoneId.of("-6"))));
+        repo.save(new Person("Jane", "Aggregatesson", ZonedDateTime.of(1981, 11, 15, 15, 15, 0, 0, ZoneId.of("-6"))));
+        assertThat(repo.countByLastName("Aggregatesson")).isEqualTo(startCount + 2);
+    }
+
+    @Test
+    public void canGetSalaryStats() {
+        SalaryStats startStats = repo.getSalaryStats();
+        repo.save(new Person(0, "John", "Smith", ZonedDateTime.of(1980, 11, 15, 15, 15, 0, 0, ZoneId.of("-6")), new BigDecimal("1000000000.00")));
+        SalaryStats endStats = repo.getSalaryStats();
+        assertThat(endStats.count()).isEqualTo(startStats.count() + 1);
+        assertThat(endStats.max()).isEqualByComparingTo("1000000000.00");
+    }
+
+    @Test
+    public void canGetSalaryStatsGroupedByLastName() {
+        repo.save(new Person(0, "John", "Groupington", ZonedDateTime.of(1980, 11, 15, 15, 15, 0, 0, ZoneId.of("-6")), new BigDecimal("100.00")));
+        repo.save(new Person(0, "Jane", "Groupington", ZonedDateTime.of(1981, 11, 15, 15, 15, 0, 0, ZoneId.of("-6")), new BigDecimal("300.00")));
+        SalaryStats groupStats = repo.getSalaryStatsGroupedBy(PersonGrouping.LAST_NAME).stream()
+                .filter(s -> "Groupington".equals(s.groupKey()))
+                .findFirst().get();
+        assertThat(groupStats.count()).isGreaterThanOrEqualTo(2);
+        assertThat(groupStats.min()).isLessThanOrEqualTo(new BigDecimal("100.00"));
+        assertThat(groupStats.max()).isGreaterThanOrEqualTo(new BigDecimal("300.00"));
+    }
+
+    @Test
+    public void canGetSalaryStatsGroupedByBirthYear() {
+        long startCount = countInGroup(PersonGrouping.BIRTH_YEAR, "1905");
+        repo.save(new Person(0, "John", "Oldtimer", ZonedDateTime.of(1905, 6, 15, 12, 0, 0, 0, ZoneId.of("+0")), new BigDecimal("100.00")));
+        repo.save(new Person(0, "Jane", "Oldtimer", ZonedDateTime.of(1905, 8, 1, 12, 0, 0, 0, ZoneId.of("+0")), new BigDecimal("300.00")));
+        assertThat(countInGroup(PersonGrouping.BIRTH_YEAR, "1905")).isEqualTo(startCount + 2);
+    }
+
+    @Test
+    public void canGetSalaryStatsGroupedByHomeRegion() {
+        long startCount = countInGroup(PersonGrouping.HOME_REGION, Region.NORTHEAST.name());
+        Person john = new Person(0, "John", "Smith", ZonedDateTime.of(1980, 11, 15, 15, 15, 0, 0, ZoneId.of("-6")), new BigDecimal("100.00"));
+        john.setHomeAddress(new Address(null, "123 Beale St.", "Apt. 1A", "Boston", "MA", "02101", "United States", "Suffolk County", Region.NORTHEAST));
+        repo.save(john);
+        assertThat(countInGroup(PersonGrouping.HOME_REGION, Region.NORTHEAST.name())).isEqualTo(startCount + 1);
+    }
+
+    private long countInGroup(PersonGrouping grouping, String groupKey) {
+        return repo.getSalaryStatsGroupedBy(grouping).stream()
+                .filter(s -> groupKey.equals(s.groupKey()))
+                .mapToLong(SalaryStats::count)
+                .sum();
+    }
+
     @Test
     public void canDelete() {
         Person savedPerson = repo.save(new Person("John1", "Smith", ZonedDateTime.of(1980, 11, 15, 15, 15, 0, 0, ZoneId.of("-6"))));
@@ -175,6 +247,45 @@ public class PeopleRepositoryTests {
         assertThat(endCount).isEqualTo(startCount - 1);
     }
 
+    @Test
+    public void canDeleteMultiplePeople() {
+        Person p1 = repo.save(new Person("John1", "Smith", ZonedDateTime.of(1980, 11, 15, 15, 15, 0, 0, ZoneId.of("-6"))));
+        Person p2 = repo.save(new Person("John2", "Smith", ZonedDateTime.of(1980, 11, 15, 15, 15, 0, 0, ZoneId.of("-6"))));
+        long startCount = repo.count();
+        repo.delete(p1, p2);
+        long endCount = repo.count();
+        assertThat(endCount).isEqualTo(startCount - 2);
+    }
+
+    @Test
+    public void rejectsUpdateOfStaleVersion() {
+        Person savedPerson = repo.save(new Person("John1", "Smith", ZonedDateTime.of(1980, 11, 15, 15, 15, 0, 0, ZoneId.of("-6"))));
+        Person firstCopy = repo.findById(savedPerson.getId()).get();
+        Person secondCopy = repo.findById(savedPerson.getId()).get();
+
+        firstCopy.setSalary(new BigDecimal("73000.28"));
+        repo.update(firstCopy);
+        secondCopy.setSalary(new BigDecimal("99000.00"));
+
+        assertThat(firstCopy.getVersion()).isEqualTo(secondCopy.getVersion() + 1);
+        assertThatThrownBy(() -> repo.update(secondCopy)).isInstanceOf(VersionConflictException.class);
+        assertThat(repo.findById(savedPerson.getId()).get().getSalary()).isEqualByComparingTo("73000.28");
+    }
+
+    @Test
+    public void reportsEachConflictOfBatchedDelete() {
+        Person p1 = repo.save(new Person("John1", "Smith", ZonedDateTime.of(1980, 11, 15, 15, 15, 0, 0, ZoneId.of("-6"))));
+        Person p2 = repo.save(new Person("John2", "Smith", ZonedDateTime.of(1980, 11, 15, 15, 15, 0, 0, ZoneId.of("-6"))));
+        Person p2Copy = repo.findById(p2.getId()).get();
+        p2Copy.setSalary(new BigDecimal("1.00"));
+        repo.update(p2Copy);
+        long startCount = repo.count();
+
+        assertThatThrownBy(() -> repo.delete(p1, p2))
+                .isInstanceOfSatisfying(VersionConflictException.class, e -> assertThat(e.getConflicts()).containsExactly(p2));
+        assertThat(repo.count()).isEqualTo(startCount - 1);
+    }
+
     @Test
     public void canUpdate() {
         Person savedPerson = repo.save(new Person("John1", "Smith", ZonedDateTime.of(1980, 11, 15, 15, 15, 0, 0, ZoneId.of("-6"))));
@@ -190,6 +301,212 @@ public class PeopleRepositoryTests {
 
     }
 
+    @Test
+    public void canUpsertByEmail() {
+        String suffix = String.valueOf(System.nanoTime());
+        Person unchanged = new Person("John", "Smith", ZonedDateTime.of(1980, 11, 15, 15, 15, 0, 0, ZoneId.of("-6")));
+        unchanged.setEmail("unchanged" + suffix + "@example.com");
+        Person changed = new Person("Jane", "Smith", ZonedDateTime.of(1981, 11, 15, 15, 15, 0, 0, ZoneId.of("-6")));
+        changed.setEmail("changed" + suffix + "@example.com");
+        repo.save(unchanged);
+        Person savedChanged = repo.save(changed);
+
+        Person unchangedAgain = new Person("John", "Smith", ZonedDateTime.of(1980, 11, 15, 15, 15, 0, 0, ZoneId.of("-6")));
+        unchangedAgain.setEmail(unchanged.getEmail());
+        Person changedAgain = new Person("Jane", "Smith", ZonedDateTime.of(1981, 11, 15, 15, 15, 0, 0, ZoneId.of("-6")));
+        changedAgain.setSalary(new BigDecimal("73000.28"));
+        changedAgain.setEmail(changed.getEmail());
+        Person added = new Person("Jenny", "Smith", ZonedDateTime.of(1982, 11, 15, 15, 15, 0, 0, ZoneId.of("-6")));
+        added.setEmail("added" + suffix + "@example.com");
+
+        UpsertResult result = repo.upsertAll(List.of(unchangedAgain, changedAgain, added));
+
+        assertThat(result).isEqualTo(new UpsertResult(1, 1, 1));
+        assertThat(changedAgain.getId()).isEqualTo(savedChanged.getId());
+        assertThat(repo.findById(savedChanged.getId()).get().getSalary()).isEqualByComparingTo("73000.28");
+        assertThat(added.getId()).isGreaterThan(0);
+    }
+
+    @Test
+    public void canUpsertNewPersonWithAddressAndChildren() {
+        Person john = new Person("John", "Smith", ZonedDateTime.of(1980, 11, 15, 15, 15, 0, 0, ZoneId.of("-6")));
+        john.setEmail("cascade" + System.nanoTime() + "@example.com");
+        john.setHomeAddress(new Address(null, "123 Beale St.", "Apt. 1A", "Wala Wala", "WA", "90210", "United States", "Fulton County", Region.WEST));
+        john.addChild(new Person("Johnny", "Smith", ZonedDateTime.of(2010, 1, 1, 1, 0, 0, 0, ZoneId.of("-6"))));
+
+        UpsertResult result = repo.upsertAll(List.of(john));
+
+        Person found = repo.findById(john.getId()).get();
+        assertThat(result.inserted()).isEqualTo(1);
+        assertThat(found.getHomeAddress()).isPresent();
+        assertThat(found.getChildren()).extracting(Person::getFirstName).containsExactly("Johnny");
+    }
+
+    @Test
+    public void canSaveOrUpdateById() {
+        Person savedPerson = repo.save(new Person("John1", "Smith", ZonedDateTime.of(1980, 11, 15, 15, 15, 0, 0, ZoneId.of("-6"))));
+        savedPerson.setLastName("Smithers");
+        UpsertResult result = repo.saveOrUpdate(savedPerson);
+        assertThat(result.updated()).isEqualTo(1);
+        assertThat(repo.findById(savedPerson.getId()).get().getLastName()).isEqualTo("Smithers");
+    }
+
+    @Test
+    public void canPublishChangesForCascadedSaves() throws InterruptedException {
+        List<ChangeEvent> events = new CopyOnWriteArrayList<>();
+        CountDownLatch received = new CountDownLatch(3);
+        try (ChangeFeed feed = new ChangeFeed()) {
+            feed.subscribe(new Flow.Subscriber<>() {
+                public void onSubscribe(Flow.Subscription subscription) { subscription.request(Long.MAX_VALUE); }
+                public void onNext(ChangeEvent event) { events.add(event); received.countDown(); }
+                public void onError(Throwable throwable) { }
+                public void onComplete() { }
+            });
+            repo.setChangeFeed(feed);
+
+            Person john = new Person("John", "Smith", ZonedDateTime.of(1980, 11, 15, 15, 15, 0, 0, ZoneId.of("-6")));
+            john.setHomeAddress(new Address(null,"123 Beale St.", "Apt. 1A", "Wala Wala", "WA", "90210", "United States", "Fulton County", Region.WEST));
+            john.addChild(new Person("Johnny", "Smith", ZonedDateTime.of(2010, 1, 1, 1,0,0,0,ZoneId.of("-6"))));
+            repo.save(john);
+
+            assertThat(received.await(5, TimeUnit.SECONDS)).isTrue();
+        }
+        assertThat(events).extracting(ChangeEvent::entityType).containsExactly("Address", "Person", "Person");
+        assertThat(events).extracting(ChangeEvent::type).containsOnly(ChangeType.INSERT);
+    }
+
+    @Test
+    public void canPublishChangesForUpdateAndDelete() throws InterruptedException {
+        List<ChangeEvent> events = new CopyOnWriteArrayList<>();
+        CountDownLatch received = new CountDownLatch(3);
+        Person savedPerson;
+        try (ChangeFeed feed = new ChangeFeed()) {
+            feed.subscribe(new Flow.Subscriber<>() {
+                public void onSubscribe(Flow.Subscription subscription) { subscription.request(Long.MAX_VALUE); }
+                public void onNext(ChangeEvent event) { events.add(event); received.countDown(); }
+                public void onError(Throwable throwable) { }
+                public void onComplete() { }
+            });
+            repo.setChangeFeed(feed);
+
+            savedPerson = repo.save(new Person("John", "Smith", ZonedDateTime.of(1980, 11, 15, 15, 15, 0, 0, ZoneId.of("-6"))));
+            savedPerson.setLastName("Smithers");
+            repo.update(savedPerson);
+            repo.delete(savedPerson);
+
+            assertThat(received.await(5, TimeUnit.SECONDS)).isTrue();
+            assertThat(feed.getDroppedCount()).isZero();
+        }
+        assertThat(events).extracting(ChangeEvent::type).containsExactly(ChangeType.INSERT, ChangeType.UPDATE, ChangeType.DELETE);
+        assertThat(events).extracting(ChangeEvent::entityId).containsOnly(savedPerson.getId());
+    }
+
+    @Test
+    public void surfacesSqlErrorsAsDataException() throws SQLException {
+        Person savedPerson = repo.save(new Person("John", "Smith", ZonedDateTime.of(1980, 11, 15, 15, 15, 0, 0, ZoneId.of("-6"))));
+        connection.close();
+
+        assertThatThrownBy(() -> repo.findById(savedPerson.getId())).isInstanceOf(DataException.class).hasCauseInstanceOf(SQLException.class);
+        assertThatThrownBy(() -> repo.update(savedPerson)).isInstanceOf(DataException.class).hasCauseInstanceOf(SQLException.class);
+        assertThatThrownBy(() -> repo.delete(savedPerson)).isInstanceOf(DataException.class).hasCauseInstanceOf(SQLException.class);
+    }
+
+    @Test
+    public void canCacheCountUntilNextWrite() throws SQLException {
+        repo.setResultCache(new ResultCache(Duration.ofMinutes(1)));
+        long startCount = repo.count();
+        connection.createStatement().executeUpdate("INSERT INTO PEOPLE (FIRST_NAME, LAST_NAME) VALUES ('Behind', 'TheCache')");
+
+        assertThat(repo.count()).isEqualTo(startCount);
+        repo.save(new Person("John", "Smith", ZonedDateTime.of(1980, 11, 15, 15, 15, 0, 0, ZoneId.of("-6"))));
+        assertThat(repo.count()).isEqualTo(startCount + 2);
+    }
+
+    @Test
+    public void canShareCacheBetweenRepositories() {
+        ResultCache cache = new ResultCache(Duration.ofMinutes(1));
+        PeopleRepository otherRepo = new PeopleRepository(connection);
+        repo.setResultCache(cache);
+        otherRepo.setResultCache(cache);
+        long startCount = repo.count();
+
+        otherRepo.save(new Person("John", "Smith", ZonedDateTime.of(1980, 11, 15, 15, 15, 0, 0, ZoneId.of("-6"))));
+
+        assertThat(repo.count()).isEqualTo(startCount + 1);
+        assertThat(otherRepo.count()).isEqualTo(startCount + 1);
+    }
+
+    @Test
+    public void canApproximateCount() {
+        repo.save(new Person("John", "Smith", ZonedDateTime.of(1980, 11, 15, 15, 15, 0, 0, ZoneId.of("-6"))));
+        assertThat(repo.approximateCount()).isCloseTo(repo.count(), withinPercentage(10));
+    }
+
+    @Test
+    public void canWarmUpWithScratchWorkload() {
+        long startCount = repo.count();
+        WarmupReport report = repo.warmUp(() -> {
+            Person savedPerson = repo.save(new Person("John", "Smith", ZonedDateTime.of(1980, 11, 15, 15, 15, 0, 0, ZoneId.of("-6"))));
+            repo.findById(savedPerson.getId());
+        }, 20);
+        assertThat(report.failures()).isEmpty();
+        assertThat(report.statementsPrepared()).isGreaterThan(0);
+        assertThat(repo.count()).isEqualTo(startCount);
+    }
+
+    @Test
+    public void reportsFailingWorkloadAndStillRollsBack() {
+        long startCount = repo.count();
+        WarmupReport report = repo.warmUp(() -> {
+            repo.save(new Person("John", "Smith", ZonedDateTime.of(1980, 11, 15, 15, 15, 0, 0, ZoneId.of("-6"))));
+            throw new IllegalStateException("workload broke");
+        }, 5);
+        assertThat(report.failures()).hasSize(1);
+        assertThat(report.failures().get(0)).contains("workload broke");
+        assertThat(repo.count()).isEqualTo(startCount);
+    }
+
+    @Test
+    public void canSearchByNamePrefix() {
+        Person john = new Person("Zebediah", "Quortlebury", ZonedDateTime.of(1980, 11, 15, 15, 15, 0, 0, ZoneId.of("-6")));
+        john.setEmail("zeb.quortlebury@example.com");
+        repo.save(john);
+        repo.save(new Person("Zebulon", "Smith", ZonedDateTime.of(1982, 9, 13, 13, 13, 0, 0, ZoneId.of("-8"))));
+
+        assertThat(repo.search("quortle", 10)).containsExactly(john);
+        assertThat(repo.search("zeb", 10)).extracting(Person::getFirstName).contains("Zebediah", "Zebulon");
+        assertThat(repo.search("zeb quortle", 10)).containsExactly(john);
+    }
+
+    @Test
+    public void rejectsBlankSearchQuery() {
+        assertThatThrownBy(() -> repo.search("  ", 10)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void canSearchWithIndex() {
+        Person john = new Person("Zebediah", "Quortlebury", ZonedDateTime.of(1980, 11, 15, 15, 15, 0, 0, ZoneId.of("-6")));
+        repo.save(john);
+        PersonSearchIndex index = PersonSearchIndex.load(connection);
+        repo.setSearchIndex(index);
+
+        assertThat(repo.search("ortleb", 10)).containsExactly(john);
+    }
+
+    @Test
+    public void skipsStaleIndexHitsWithoutShrinkingTheResults() {
+        Person john = repo.save(new Person("Zebediah", "Quortlebury", ZonedDateTime.of(1980, 11, 15, 15, 15, 0, 0, ZoneId.of("-6"))));
+        Person jane = repo.save(new Person("Zebedee", "Quortlebury", ZonedDateTime.of(1982, 9, 13, 13, 13, 0, 0, ZoneId.of("-8"))));
+        PersonSearchIndex index = new PersonSearchIndex();
+        index.add(john.getId(), john.getFirstName(), john.getLastName(), null);
+        index.add(jane.getId(), jane.getFirstName(), jane.getLastName(), null);
+        index.add(Long.MAX_VALUE - 1, "Rolled", "Quortlebury", null);
+        index.add(1, "Quortlebury", "Renamed", null);
+        repo.setSearchIndex(index);
+
+        assertThat(repo.search("quortlebury", 2)).containsExactlyInAnyOrder(john, jane);
+    }
+
     @Test
     @Disabled
     public void loadData() throws IOException, SQLException {
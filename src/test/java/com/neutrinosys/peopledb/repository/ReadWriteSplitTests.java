@@ -0,0 +1,109 @@
+package com.neutrinosys.peopledb.repository;
+
+import com.neutrinosys.peopledb.dialect.Schema;
+import com.neutrinosys.peopledb.model.Person;
+import com.neutrinosys.peopledb.routing.BalancingStrategy;
+import com.neutrinosys.peopledb.routing.ConnectionRouter;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * The primary and replica are separate in-memory databases with no replication between them, so a row
+ * written through the repository is only visible when the read was routed to the primary.
+ */
+public class ReadWriteSplitTests {
+
+    private Connection primary;
+    private Connection replica;
+    private ConnectionRouter router;
+    private PeopleRepository repo;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        primary = DriverManager.getConnection("jdbc:h2:mem:rwprimary");
+        Schema.create(primary);
+        primary.setAutoCommit(false);
+        replica = DriverManager.getConnection("jdbc:h2:mem:rwreplica");
+        Schema.create(replica);
+        router = new ConnectionRouter(primary, List.of(replica), BalancingStrategy.ROUND_ROBIN, Duration.ZERO);
+        repo = new PeopleRepository(router);
+    }
+
+    @AfterEach
+    void tearDown() throws SQLException {
+        if (primary != null) {
+            primary.close();
+        }
+        if (replica != null) {
+            replica.close();
+        }
+    }
+
+    @Test
+    public void writesGoToPrimary() throws SQLException {
+        repo.save(new Person("John", "Smith", ZonedDateTime.of(1980, 11, 15, 15, 15, 0, 0, ZoneId.of("-6"))));
+        router.commit();
+        assertThat(countPeople(primary)).isEqualTo(1);
+        assertThat(countPeople(replica)).isZero();
+    }
+
+    @Test
+    public void readsSeeWritesFromTheOpenTransaction() {
+        Person savedPerson = repo.save(new Person("John", "Smith", ZonedDateTime.of(1980, 11, 15, 15, 15, 0, 0, ZoneId.of("-6"))));
+        assertThat(repo.findById(savedPerson.getId())).isPresent();
+    }
+
+    @Test
+    public void readsGoToReplicaOnceRouterCommits() throws SQLException {
+        Person savedPerson = repo.save(new Person("John", "Smith", ZonedDateTime.of(1980, 11, 15, 15, 15, 0, 0, ZoneId.of("-6"))));
+        router.commit();
+        assertThat(repo.findById(savedPerson.getId())).isEmpty();
+    }
+
+    @Test
+    public void readsGoToReplicaOnceConnectionCommits() throws SQLException {
+        Person savedPerson = repo.save(new Person("John", "Smith", ZonedDateTime.of(1980, 11, 15, 15, 15, 0, 0, ZoneId.of("-6"))));
+        primary.commit();
+        assertThat(repo.findById(savedPerson.getId())).isEmpty();
+    }
+
+    @Test
+    public void readsFailOverToPrimaryWhenReplicaIsDown() throws SQLException {
+        Person savedPerson = repo.save(new Person("John", "Smith", ZonedDateTime.of(1980, 11, 15, 15, 15, 0, 0, ZoneId.of("-6"))));
+        router.commit();
+        replica.close();
+        assertThat(repo.findById(savedPerson.getId())).isPresent();
+        assertThat(router.forRead()).isSameAs(primary);
+    }
+
+    @Test
+    public void checkReplicasTakesDownReplicaOutOfRotation() throws SQLException {
+        assertThat(router.checkReplicas()).isEqualTo(1);
+        assertThat(router.forRead()).isSameAs(replica);
+
+        replica.close();
+        assertThat(router.checkReplicas()).isZero();
+        assertThat(router.forRead()).isSameAs(primary);
+    }
+
+    private long countPeople(Connection connection) throws SQLException {
+        try (Statement stmt = connection.createStatement()) {
+            ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM PEOPLE");
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package com.neutrinosys.peopledb.repository;
+
+import com.neutrinosys.peopledb.dialect.Schema;
+import com.neutrinosys.peopledb.exception.UpsertConflictException;
+import com.neutrinosys.peopledb.model.Address;
+import com.neutrinosys.peopledb.model.Person;
+import com.neutrinosys.peopledb.model.PersonGrouping;
+import com.neutrinosys.peopledb.model.Region;
+import com.neutrinosys.peopledb.model.SalaryStats;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+
+public class ShardedPeopleRepositoryTests {
+    private static final int SHARD_COUNT = 3;
+
+    private final List<Connection> connections = new ArrayList<>();
+    private ShardedPeopleRepository repo;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        List<PeopleRepository> shards = new ArrayList<>();
+        for (int shardIdx = 0; shardIdx < SHARD_COUNT; shardIdx++) {
+            Connection connection = DriverManager.getConnection("jdbc:h2:mem:shard" + shardIdx);
+            int idStart = shardIdx == 0 ? SHARD_COUNT : shardIdx;
+            Schema.create(connection, "BIGINT AUTO_INCREMENT(%d, %d) PRIMARY KEY".formatted(idStart, SHARD_COUNT));
+            connections.add(connection);
+            shards.add(new PeopleRepository(connection));
+        }
+        repo = new ShardedPeopleRepository(shards);
+    }
+
+    @AfterEach
+    void tearDown() throws SQLException {
+        repo.close();
+        for (Connection connection : connections) {
+            connection.close();
+        }
+    }
+
+    @Test
+    public void canFindPersonSavedOnAnyShard() {
+        for (int i = 0; i < 10; i++) {
+            Person person = new Person("John" + i, "Smith", ZonedDateTime.of(1980, 11, 15, 15, 15, 0, 0, ZoneId.of("-6")));
+            person.setEmail("john" + i + "@example.com");
+            Person savedPerson = repo.save(person);
+            assertThat(repo.findById(savedPerson.getId()).get().getFirstName()).isEqualTo("John" + i);
+        }
+        assertThat(repo.count()).isEqualTo(10);
+    }
+
+    @Test
+    public void keepsChildrenAndAddressesWithTheirParent() {
+        Person john = new Person("John", "Smith", ZonedDateTime.of(1980, 11, 15, 15, 15, 0, 0, ZoneId.of("-6")));
+        john.setHomeAddress(new Address(null, "123 Beale St.", "Apt. 1A", "Wala Wala", "WA", "90210", "United States", "Fulton County", Region.WEST));
+        john.addChild(new Person("Johnny", "Smith", ZonedDateTime.of(2010, 1, 1, 1, 0, 0, 0, ZoneId.of("-6"))));
+        john.addChild(new Person("Sarah", "Smith", ZonedDateTime.of(2012, 3, 1, 1, 0, 0, 0, ZoneId.of("-6"))));
+
+        Person savedPerson = repo.save(john);
+
+        Person foundPerson = repo.findById(savedPerson.getId()).get();
+        assertThat(foundPerson.getChildren()).hasSize(2);
+        assertThat(foundPerson.getHomeAddress().get().state()).isEqualTo("WA");
+        savedPerson.getChildren().forEach(child ->
+                assertThat(repo.shardForId(child.getId())).isEqualTo(repo.shardForId(savedPerson.getId())));
+    }
+
+    @Test
+    public void mergesUpsertConflictsFromEveryShard() {
+        List<Person> stale = new ArrayList<>();
+        for (int i = 0; stale.size() < 2; i++) {
+            Person person = new Person("John" + i, "Smith", ZonedDateTime.of(1980, 11, 15, 15, 15, 0, 0, ZoneId.of("-6")));
+            person.setEmail("john" + i + "@example.com");
+            repo.save(person);
+            if (stale.isEmpty() || repo.shardForId(person.getId()) != repo.shardForId(stale.get(0).getId())) {
+                stale.add(person);
+            }
+        }
+        for (Person person : stale) {
+            Person copy = repo.findById(person.getId()).get();
+            copy.setSalary(new BigDecimal("1.00"));
+            repo.upsertAll(List.of(copy));
+            person.setSalary(new BigDecimal("2.00"));
+        }
+        Person jane = new Person("Jane", "Jones", ZonedDateTime.of(1990, 2, 3, 4, 5, 6, 0, ZoneId.of("+1")));
+        jane.setEmail("jane@example.com");
+        List<Person> batch = new ArrayList<>(stale);
+        batch.add(jane);
+
+        assertThatThrownBy(() -> repo.upsertAll(batch))
+                .isInstanceOfSatisfying(UpsertConflictException.class, e -> {
+                    assertThat(e.getConflicts()).containsExactlyInAnyOrderElementsOf(stale);
+                    assertThat(e.getResult().inserted()).isEqualTo(1);
+                });
+    }
+
+    @Test
+    public void canAggregateAcrossShards() {
+        for (int i = 0; i < 6; i++) {
+            Person person = new Person("John" + i, i % 2 == 0 ? "Smith" : "Jones", ZonedDateTime.of(1980, 11, 15, 15, 15, 0, 0, ZoneId.of("-6")));
+            person.setSalary(new BigDecimal(100 * (i + 1)));
+            repo.save(person);
+        }
+        SalaryStats stats = repo.getSalaryStats();
+        assertThat(stats.count()).isEqualTo(6);
+        assertThat(stats.sum()).isEqualByComparingTo("2100");
+        assertThat(stats.min()).isEqualByComparingTo("100");
+        assertThat(stats.max()).isEqualByComparingTo("600");
+        assertThat(repo.getSalaryStatsGroupedBy(PersonGrouping.LAST_NAME))
+                .extracting(SalaryStats::groupKey, SalaryStats::count)
+                .containsExactly(tuple("Jones", 3L), tuple("Smith", 3L));
+    }
+}
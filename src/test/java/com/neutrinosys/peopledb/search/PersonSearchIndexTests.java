@@ -0,0 +1,82 @@
+package com.neutrinosys.peopledb.search;
+
+import com.neutrinosys.peopledb.model.ChangeEvent;
+import com.neutrinosys.peopledb.model.ChangeType;
+import com.neutrinosys.peopledb.model.Person;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class PersonSearchIndexTests {
+    private PersonSearchIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new PersonSearchIndex();
+        index.add(1, "John", "Smith", "john.smith@example.com");
+        index.add(2, "Johnny", "Smithers", "jsmithers@example.com");
+        index.add(3, "Jane", "Goldsmith", null);
+        index.add(4, "Mary-Ann", "Jones", "mary@example.com");
+    }
+
+    @Test
+    public void ranksExactMatchesBeforePrefixMatchesBeforeSubstrings() {
+        assertThat(index.search("smith", 10)).containsExactly(1L, 2L, 3L);
+    }
+
+    @Test
+    public void requiresEveryWordToMatch() {
+        assertThat(index.search("john smi", 10)).containsExactly(1L, 2L);
+        assertThat(index.search("jane smithers", 10)).isEmpty();
+    }
+
+    @Test
+    public void splitsNamesAndEmailsIntoTerms() {
+        assertThat(index.search("ann", 10)).containsExactly(4L);
+        assertThat(index.search("jsmith", 10)).containsExactly(2L);
+    }
+
+    @Test
+    public void honoursTheLimit() {
+        assertThat(index.search("j", 2)).containsExactly(1L, 2L);
+    }
+
+    @Test
+    public void keepsTheBestMatchesWhenLimited() {
+        assertThat(index.search("smith", 2)).containsExactly(1L, 2L);
+        assertThat(index.search("smith", 0)).isEmpty();
+    }
+
+    @Test
+    public void matchesUsesTheSameRulesAsSearch() {
+        assertThat(PersonSearchIndex.matches("john smi", "John", "Smith", null)).isTrue();
+        assertThat(PersonSearchIndex.matches("oldsmi", "Jane", "Goldsmith", null)).isTrue();
+        assertThat(PersonSearchIndex.matches("ol", "Jane", "Goldsmith", null)).isFalse();
+        assertThat(PersonSearchIndex.matches("jane smithers", "Jane", "Goldsmith", null)).isFalse();
+    }
+
+    @Test
+    public void appliesChangeEvents() {
+        Person renamed = new Person(1L, "Jon", "Smyth", ZonedDateTime.of(1980, 11, 15, 15, 15, 0, 0, ZoneId.of("-6")));
+        index.onNext(new ChangeEvent(ChangeType.UPDATE, "Person", 1, Instant.now(), renamed));
+        index.onNext(new ChangeEvent(ChangeType.DELETE, "Person", 2, Instant.now(), null));
+
+        assertThat(index.search("smith", 10)).containsExactly(1L, 3L);
+        assertThat(index.search("smyth", 10)).containsExactly(1L);
+        assertThat(index.size()).isEqualTo(3);
+    }
+
+    @Test
+    public void ignoresInsertsAndUpdatesWithoutEntity() {
+        index.onNext(new ChangeEvent(ChangeType.INSERT, "Person", 5, Instant.now(), null));
+        index.onNext(new ChangeEvent(ChangeType.UPDATE, "Person", 1, Instant.now(), null));
+
+        assertThat(index.search("john", 10)).containsExactly(1L, 2L);
+        assertThat(index.size()).isEqualTo(4);
+    }
+}
@@ -0,0 +1,122 @@
+package com.neutrinosys.peopledb.snapshot;
+
+import com.neutrinosys.peopledb.dialect.Schema;
+import com.neutrinosys.peopledb.exception.DataException;
+import com.neutrinosys.peopledb.exception.VersionConflictException;
+import com.neutrinosys.peopledb.model.Address;
+import com.neutrinosys.peopledb.model.Person;
+import com.neutrinosys.peopledb.model.Region;
+import com.neutrinosys.peopledb.model.SnapshotSummary;
+import com.neutrinosys.peopledb.repository.PeopleRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.RandomAccessFile;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class PeopleSnapshotTests {
+    private Connection source;
+    private Connection target;
+    private PeopleRepository sourceRepo;
+    private PeopleRepository targetRepo;
+
+    @TempDir
+    Path tempDir;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        source = DriverManager.getConnection("jdbc:h2:mem:snapshotSource");
+        target = DriverManager.getConnection("jdbc:h2:mem:snapshotTarget");
+        Schema.create(source);
+        Schema.create(target);
+        sourceRepo = new PeopleRepository(source);
+        targetRepo = new PeopleRepository(target);
+    }
+
+    @AfterEach
+    void tearDown() throws SQLException {
+        source.close();
+        target.close();
+    }
+
+    @Test
+    public void canRestoreExportedPeopleWithLinks() {
+        Person john = new Person("John", "Smith", ZonedDateTime.of(1980, 11, 15, 15, 15, 0, 0, ZoneId.of("-6")));
+        john.setSalary(new BigDecimal("73000.50"));
+        john.setEmail("john.smith@example.com");
+        john.setHomeAddress(new Address(null, "123 Beale St.", "Apt. 1A", "Wala Wala", "WA", "90210", "United States", "Fulton County", Region.WEST));
+        john.addChild(new Person("Johnny", "Smith", ZonedDateTime.of(2010, 1, 1, 1, 0, 0, 0, ZoneId.of("-6"))));
+        sourceRepo.save(john);
+        sourceRepo.save(new Person("Jane", "Jones", ZonedDateTime.of(1990, 2, 3, 4, 5, 6, 0, ZoneId.of("+1"))));
+
+        Path file = tempDir.resolve("people.snapshot");
+        SnapshotSummary exported = PeopleSnapshot.export(source, file);
+        SnapshotSummary restored = PeopleSnapshot.restore(target, file);
+
+        assertThat(exported.people()).isEqualTo(3);
+        assertThat(exported.addresses()).isEqualTo(1);
+        assertThat(restored.people()).isEqualTo(3);
+        assertThat(restored.bytes()).isEqualTo(exported.bytes());
+        Person restoredJohn = targetRepo.findById(john.getId()).get();
+        assertThat(restoredJohn).isEqualTo(john);
+        assertThat(restoredJohn.getEmail()).isEqualTo("john.smith@example.com");
+        assertThat(restoredJohn.getHomeAddress().get().city()).isEqualTo("Wala Wala");
+        assertThat(restoredJohn.getChildren()).extracting(Person::getFirstName).containsExactly("Johnny");
+    }
+
+    @Test
+    public void keepsVersionsSoStaleCopiesStillConflict() {
+        Person john = sourceRepo.save(new Person("John", "Smith", ZonedDateTime.of(1980, 11, 15, 15, 15, 0, 0, ZoneId.of("-6"))));
+        Person staleJohn = sourceRepo.findById(john.getId()).get();
+        john.setSalary(new BigDecimal("73000.50"));
+        sourceRepo.update(john);
+        Path file = tempDir.resolve("people.snapshot");
+        PeopleSnapshot.export(source, file);
+        PeopleSnapshot.restore(target, file);
+
+        assertThat(targetRepo.findById(john.getId()).get().getVersion()).isEqualTo(john.getVersion());
+        staleJohn.setSalary(new BigDecimal("1.00"));
+        assertThatThrownBy(() -> targetRepo.update(staleJohn)).isInstanceOf(VersionConflictException.class);
+    }
+
+    @Test
+    public void restoredDatabaseGeneratesIdsPastTheSnapshot() {
+        Person john = sourceRepo.save(new Person("John", "Smith", ZonedDateTime.of(1980, 11, 15, 15, 15, 0, 0, ZoneId.of("-6"))));
+        Path file = tempDir.resolve("people.snapshot");
+        PeopleSnapshot.export(source, file);
+        PeopleSnapshot.restore(target, file);
+
+        Person jane = targetRepo.save(new Person("Jane", "Jones", ZonedDateTime.of(1990, 2, 3, 4, 5, 6, 0, ZoneId.of("+1"))));
+
+        assertThat(jane.getId()).isGreaterThan(john.getId());
+    }
+
+    @Test
+    public void rejectsCorruptedBlocks() throws Exception {
+        sourceRepo.save(new Person("John", "Smith", ZonedDateTime.of(1980, 11, 15, 15, 15, 0, 0, ZoneId.of("-6"))));
+        Path file = tempDir.resolve("people.snapshot");
+        PeopleSnapshot.export(source, file);
+        try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw")) {
+            long payloadStart = SnapshotFormat.FILE_HEADER_LENGTH + SnapshotFormat.BLOCK_HEADER_LENGTH;
+            raf.seek(payloadStart + 2);
+            int b = raf.read();
+            raf.seek(payloadStart + 2);
+            raf.write(b ^ 0xFF);
+        }
+
+        assertThatThrownBy(() -> PeopleSnapshot.restore(target, file))
+                .isInstanceOf(DataException.class)
+                .hasMessageContaining("checksum");
+    }
+}